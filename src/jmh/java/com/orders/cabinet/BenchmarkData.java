@@ -0,0 +1,112 @@
+package com.orders.cabinet;
+
+import com.orders.cabinet.model.api.Order;
+import com.orders.cabinet.model.api.OrderPreps;
+import com.orders.cabinet.model.api.PriceList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+/**
+ * Synthetic data for the benchmarks.
+ *
+ * <p>Data is generated from a fixed seed, so every run of a benchmark works on the same input.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+public final class BenchmarkData {
+
+    private static final long SEED = 20240719L;
+
+    private static final String[] NAMES = {
+            "Paracetamol", "Ibuprofen", "Amoxicillin", "Aspirin", "Analgin", "Citramon", "Nurofen", "Loratadine",
+            "Omeprazole", "Pantoprazole", "Metformin", "Lisinopril", "Amlodipine", "Atorvastatin", "Cetirizine",
+            "Diclofenac", "Ketorol", "No-Spa", "Smecta", "Enterogermina", "Linex", "Mezym", "Festal", "Validol",
+            "Corvalol", "Ascorutin", "Magne B6", "Aqualor", "Otrivin", "Strepsils", "Faringosept", "Ambroxol"
+    };
+    private static final String[] FORMS = {"tabl.", "caps.", "syrup", "susp.", "gel", "spray", "drops", "powder"};
+    private static final String[] DOSES = {"100 mg", "200 mg", "250 mg", "400 mg", "500 mg", "1000 mg", "5 mg/ml"};
+    private static final String[] MAKERS = {"Darnitsa", "Farmak", "KMP", "Teva", "Sandoz", "Bayer", "Zdorovye"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generates a price list of a shop.
+     *
+     * @param size the amount of items
+     * @return the items with unique drug IDs
+     */
+    public static List<PriceList> priceList(int size) {
+        Random random = new Random(SEED);
+        List<PriceList> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(PriceList.builder()
+                    .drugId(String.valueOf(100_000 + i))
+                    .drugName(drugName(random))
+                    .drugLink("/uk/preparat/" + (100_000 + i))
+                    .quant(String.valueOf(1 + random.nextInt(50)))
+                    .price(String.valueOf(10 + random.nextInt(2000) + random.nextInt(100) / 100.0))
+                    .pfactor(random.nextInt(4) == 0 ? 1 : null)
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * Generates orders of a shop.
+     *
+     * @param size the amount of orders
+     * @param lines the amount of items in every order
+     * @return the orders
+     */
+    public static Order[] orders(int size, int lines) {
+        Random random = new Random(SEED);
+        Order[] result = new Order[size];
+        for (int i = 0; i < size; i++) {
+            List<OrderPreps> preps = new ArrayList<>(lines);
+            for (int j = 0; j < lines; j++) {
+                preps.add(OrderPreps.builder()
+                        .id(drugId(random))
+                        .extId(String.valueOf(random.nextInt(1_000_000)))
+                        .quant((double) (1 + random.nextInt(3)))
+                        .price(10 + random.nextInt(2000) + random.nextInt(100) / 100.0)
+                        .build());
+            }
+            result[i] = Order.builder()
+                    .idShop("12345")
+                    .extidShop("ext-12345")
+                    .phone("380" + (500_000_000 + random.nextInt(499_999_999)))
+                    .test(false)
+                    .msgFlags(0)
+                    .timestamp(1_721_376_000L + i)
+                    .agent("Apteki")
+                    .idOrder(String.valueOf(1_000_000_000L + random.nextInt(Integer.MAX_VALUE)))
+                    .shipping("pickup")
+                    .state("New")
+                    .data(preps)
+                    .build();
+        }
+        return result;
+    }
+
+    /**
+     * Generates a drug ID from the ID range of {@link #priceList(int)}.
+     *
+     * @param random the source of randomness
+     * @return the drug ID
+     */
+    public static String drugId(Random random) {
+        return String.valueOf(100_000 + random.nextInt(10_000));
+    }
+
+    private static String drugName(Random random) {
+        return NAMES[random.nextInt(NAMES.length)] + " "
+                + FORMS[random.nextInt(FORMS.length)] + " "
+                + DOSES[random.nextInt(DOSES.length)] + " N" + (10 + random.nextInt(50)) + " "
+                + MAKERS[random.nextInt(MAKERS.length)];
+    }
+}
@@ -0,0 +1,37 @@
+package com.orders.cabinet.configuration;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+/**
+ * Benchmark of the Basic credentials decoding done by {@link DeniedAccessFilter} on every request.
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CredentialsBenchmark {
+
+    DeniedAccessFilter filter;
+    String authHeader;
+
+    @Setup
+    public void setUp() {
+        filter = new DeniedAccessFilter(null, null);
+        authHeader = "Basic " + Base64.getEncoder().encodeToString("12345:s3cr3t-passw0rd".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String[] getCredentials() {
+        return filter.getCredentials(authHeader);
+    }
+}
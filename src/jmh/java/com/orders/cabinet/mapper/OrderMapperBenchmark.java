@@ -0,0 +1,104 @@
+package com.orders.cabinet.mapper;
+
+import com.orders.cabinet.BenchmarkData;
+import com.orders.cabinet.configuration.DrugCacheProperties;
+import com.orders.cabinet.model.api.Order;
+import com.orders.cabinet.model.api.OrderPreps;
+import com.orders.cabinet.model.api.dto.OrderDTO;
+import com.orders.cabinet.model.db.DrugCache;
+import com.orders.cabinet.model.db.order.OrderDb;
+import com.orders.cabinet.model.db.order.PrepsInOrderDb;
+import com.orders.cabinet.model.db.order.State;
+import com.orders.cabinet.repository.DrugCacheRepository;
+import com.orders.cabinet.service.DrugNameService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+/**
+ * Benchmark of {@link OrderMapper} with drug names answered from the in-process cache.
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMapperBenchmark {
+
+    @Param({"1", "5", "20"})
+    int lines;
+
+    OrderMapper orderMapper;
+    Order order;
+    OrderDb orderDb;
+
+    @Setup
+    public void setUp() {
+        DrugCacheRepository repository = Mockito.mock(DrugCacheRepository.class);
+        when(repository.findAllByDrugIdIn(anyList())).thenAnswer(invocation -> ((Collection<String>) invocation.getArgument(0))
+                .stream()
+                .map(id -> new DrugCache(id, "Drug " + id, "/uk/preparat/" + id))
+                .toList());
+
+        DrugCacheProperties properties = new DrugCacheProperties();
+        properties.setWarmUp(false);
+        DrugNameService drugNameService = new DrugNameService(repository, null, null, properties, new SimpleMeterRegistry());
+        drugNameService.init();
+        orderMapper = new OrderMapper(drugNameService);
+
+        order = BenchmarkData.orders(1, lines)[0];
+        orderDb = toDb(order);
+        drugNameService.resolveAll(order.getData().stream().map(OrderPreps::getId).toList());
+    }
+
+    @Benchmark
+    public OrderDTO orderToDto() {
+        return orderMapper.OrderToDto(order);
+    }
+
+    @Benchmark
+    public OrderDTO dbToDto() {
+        return orderMapper.DBToDTO(orderDb);
+    }
+
+    private static OrderDb toDb(Order order) {
+        OrderDb orderDb = OrderDb.builder()
+                .orderId(order.getIdOrder())
+                .phone(order.getPhone())
+                .agent(order.getAgent())
+                .timestamp(order.getTimestamp())
+                .shipping(order.getShipping())
+                .build();
+        State state = State.builder()
+                .order(orderDb)
+                .time(new Date())
+                .state(order.getState())
+                .build();
+        List<PrepsInOrderDb> preps = order.getData()
+                .stream()
+                .map(prep -> PrepsInOrderDb.builder()
+                        .state(state)
+                        .morionId(prep.getId())
+                        .extId(prep.getExtId())
+                        .price(prep.getPrice())
+                        .quant(prep.getQuant())
+                        .build())
+                .toList();
+        state.setPrepsInOrder(preps);
+        orderDb.setStates(List.of(state));
+        return orderDb;
+    }
+}
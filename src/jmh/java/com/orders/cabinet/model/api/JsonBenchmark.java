@@ -0,0 +1,67 @@
+package com.orders.cabinet.model.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orders.cabinet.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+/**
+ * Benchmark of the Jackson (de)serialization of the orders polled from Pop-Order
+ * and the price lists loaded from Geoapteka.
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final TypeReference<List<PriceList>> PRICE_LIST = new TypeReference<>() {};
+
+    @Param({"10000", "50000"})
+    int priceListSize;
+
+    ObjectMapper objectMapper;
+    Order[] orders;
+    String ordersJson;
+    List<PriceList> priceList;
+    String priceListJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        orders = BenchmarkData.orders(50, 5);
+        ordersJson = objectMapper.writeValueAsString(orders);
+        priceList = BenchmarkData.priceList(priceListSize);
+        priceListJson = objectMapper.writeValueAsString(priceList);
+    }
+
+    @Benchmark
+    public String writeOrders() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(orders);
+    }
+
+    @Benchmark
+    public Order[] readOrders() throws JsonProcessingException {
+        return objectMapper.readValue(ordersJson, Order[].class);
+    }
+
+    @Benchmark
+    public String writePriceList() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(priceList);
+    }
+
+    @Benchmark
+    public List<PriceList> readPriceList() throws JsonProcessingException {
+        return objectMapper.readValue(priceListJson, PRICE_LIST);
+    }
+}
@@ -0,0 +1,49 @@
+package com.orders.cabinet.service;
+
+import com.orders.cabinet.BenchmarkData;
+import com.orders.cabinet.configuration.PriceListRefreshProperties;
+import com.orders.cabinet.model.api.PriceList;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+/**
+ * Benchmark of {@link AdditionalService#getDrugByName(String, String)} over a cached price list.
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrugSearchBenchmark {
+
+    private static final String SHOP = "12345";
+
+    @Param({"10000", "50000", "100000"})
+    int size;
+
+    @Param({"para", "ibu 400", "amox caps 500"})
+    String query;
+
+    AdditionalService additionalService;
+
+    @Setup
+    public void setUp() {
+        CacheService cacheService = new CacheService(new PriceListRefreshProperties());
+        cacheService.cachePriceList(SHOP, BenchmarkData.priceList(size));
+        additionalService = new AdditionalService(null, null, cacheService, null, null, null, null);
+        ReflectionTestUtils.setField(additionalService, "searchLimit", 200);
+    }
+
+    @Benchmark
+    public List<PriceList> getDrugByName() {
+        return additionalService.getDrugByName(SHOP, query).join();
+    }
+}
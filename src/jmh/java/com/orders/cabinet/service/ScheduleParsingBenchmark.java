@@ -0,0 +1,37 @@
+package com.orders.cabinet.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+/**
+ * Benchmark of the open hours parsing done by {@link LoginService} for every logged shop.
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleParsingBenchmark {
+
+    @Param({"Mo-Su 00:00-00:00", "Mo-Fr 08:00-21:00, Sa 09:00-20:00, Su 10:00-18:00"})
+    String schedule;
+
+    LoginService loginService;
+
+    @Setup
+    public void setUp() {
+        loginService = new LoginService(null, null, null, null, null, null);
+    }
+
+    @Benchmark
+    public Map<String, Map<String, String>> parseSingleSchedule() {
+        return loginService.parseSingleSchedule(schedule);
+    }
+}
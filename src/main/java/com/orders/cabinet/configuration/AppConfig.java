@@ -1,9 +1,23 @@
 package com.orders.cabinet.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
 import lombok.RequiredArgsConstructor;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -12,6 +26,9 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadPoolExecutor;
 /**
@@ -30,11 +47,83 @@ public class AppConfig {
     /**
      * Creates a {@link RestTemplate} bean for making REST API calls.
      *
+     * <p>The template uses a pooled Apache HttpClient with keep-alive and idle eviction. Pool size and
+     * connect/read timeouts are set per upstream host (pop-order, geoapteka, telegram) from
+     * {@link HttpClientProperties}, and pool usage is exported to the meter registry.</p>
+     *
+     * @param properties the HTTP client configuration
+     * @param popOrder the pop-order configuration with the Booking URL
+     * @param telegram the Telegram module configuration with its URL
+     * @param geoaptekaUrl the Geoapteka API URL
+     * @param meterRegistry the registry for pool metrics
      * @return a new instance of {@link RestTemplate}
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(HttpClientProperties properties,
+                                     PopOrderProperties popOrder,
+                                     TelegramProperties telegram,
+                                     @Value("${geoapteka.api.url}") String geoaptekaUrl,
+                                     MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(properties.getDefaults().getMaxConnections());
+
+        Map<String, String> urls = Map.of(
+                OutboundExecutor.POP_ORDER, popOrder.getUrl(),
+                OutboundExecutor.GEOAPTEKA, geoaptekaUrl,
+                OutboundExecutor.TELEGRAM, telegram.getUrl());
+        Map<String, ConnectionConfig> configs = new HashMap<>();
+        urls.forEach((name, url) -> {
+            HttpClientProperties.Upstream upstream = properties.getUpstreams().getOrDefault(name, properties.getDefaults());
+            HttpHost host = getHost(url);
+            configs.put(host.toHostString(), getConnectionConfig(upstream));
+            connectionManager.setMaxPerRoute(new HttpRoute(host, null, URIScheme.HTTPS.same(host.getSchemeName())),
+                    upstream.getMaxConnections());
+        });
+        ConnectionConfig defaultConfig = getConnectionConfig(properties.getDefaults());
+        connectionManager.setConnectionConfigResolver(route ->
+                configs.getOrDefault(route.getTargetHost().toHostString(), defaultConfig));
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "cabinet").bindTo(meterRegistry);
+
+        TimeValue keepAlive = TimeValue.of(properties.getKeepAlive());
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> {
+                    TimeValue requested = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return requested.compareTo(keepAlive) < 0 ? requested : keepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getIdleEviction()))
+                .build();
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    /**
+     * Builds the connection settings of one upstream.
+     *
+     * @param upstream the upstream configuration
+     * @return the {@link ConnectionConfig} for the upstream host
+     */
+    private ConnectionConfig getConnectionConfig(HttpClientProperties.Upstream upstream) {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(upstream.getConnectTimeout()))
+                .setSocketTimeout(Timeout.of(upstream.getReadTimeout()))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build();
+    }
+
+    /**
+     * Resolves the host of the URL with an explicit port, the same way the client does for its routes.
+     *
+     * @param url the upstream URL
+     * @return the {@link HttpHost} of the URL
+     */
+    private HttpHost getHost(String url) {
+        URI uri = URI.create(url);
+        boolean secure = URIScheme.HTTPS.same(uri.getScheme());
+        int port = uri.getPort() != -1 ? uri.getPort() : secure ? 443 : 80;
+        return new HttpHost(uri.getScheme(), uri.getHost(), port);
     }
 
     /**
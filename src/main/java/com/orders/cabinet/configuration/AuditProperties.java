@@ -0,0 +1,121 @@
+package com.orders.cabinet.configuration;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+/**
+ * Configuration properties for writing audit log entries.
+ * <p>
+ * This class is used to bind properties defined in the application's configuration
+ * files with the prefix {@code audit}. It includes the size of the buffer entries wait in
+ * before they are written and the thresholds a batch of entries is written on, and where
+ * audit events of controller calls are written to.
+ * </p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Component
+@ConfigurationProperties(prefix = "audit")
+@Getter
+@Setter
+@Primary
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AuditProperties {
+    /**
+     * Maximum amount of entries waiting to be written; entries above it are dropped.
+     */
+    Integer bufferCapacity = 10000;
+
+    /**
+     * A batch is written as soon as it has this amount of entries.
+     */
+    Integer batchSize = 500;
+
+    /**
+     * A batch is written at most this long after its first entry was added.
+     */
+    Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * Settings of audit events of controller calls.
+     */
+    Controller controller = new Controller();
+
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Controller {
+        /**
+         * {@code db} writes the events to the {@code log_controllers} table, {@code file} to segment files.
+         */
+        String sink = "db";
+
+        /**
+         * Directory of the segment files of the {@code file} sink.
+         */
+        Path directory = Path.of("logs", "controller-events");
+
+        /**
+         * A new segment file is started once the current one reaches this size.
+         */
+        DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Maximum amount of events waiting to be written; events above it are dropped. Events may carry response
+         * bodies, so the buffer is kept smaller than the one of entity audit entries.
+         */
+        Integer bufferCapacity = 1000;
+
+        /**
+         * Share of calls written, from 0 to 1.
+         */
+        Double sampleRate = 1.0;
+
+        /**
+         * Whether response bodies are written.
+         */
+        Boolean body = true;
+
+        /**
+         * Collections in response bodies are cut to this amount of elements.
+         */
+        Integer maxElements = 50;
+
+        /**
+         * Rendered response bodies are cut to this amount of characters.
+         */
+        Integer maxBodyChars = 4096;
+
+        /**
+         * Settings overriding the ones above for endpoints matching the path patterns used as keys,
+         * e.g. {@code audit.controller.endpoints.[/more/**].sample-rate=0.1}. The first matching pattern is used.
+         */
+        Map<String, Capture> endpoints = new LinkedHashMap<>();
+    }
+
+    /**
+     * Capture settings of an endpoint; settings which are not set are taken from {@link Controller}.
+     */
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Capture {
+        Double sampleRate;
+        Boolean body;
+        Integer maxElements;
+        Integer maxBodyChars;
+    }
+}
@@ -0,0 +1,46 @@
+package com.orders.cabinet.configuration;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+/**
+ * Configuration properties for the cache of verified credentials.
+ * <p>
+ * This class is used to bind properties defined in the application's configuration
+ * files with the prefix {@code auth.cache}. It configures how long verified credentials
+ * and the logged-in status of shops are trusted before they are checked against the database again.
+ * </p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Component
+@ConfigurationProperties(prefix = "auth.cache")
+@Getter
+@Setter
+@Primary
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AuthCacheProperties {
+    /**
+     * Time verified credentials are trusted without checking the password again.
+     */
+    Duration ttl = Duration.ofMinutes(5);
+
+    /**
+     * Maximum amount of verified credentials kept in memory.
+     */
+    Long maximumSize = 10_000L;
+
+    /**
+     * Time the logged-in status of a shop is trusted without reading it from the database.
+     */
+    Duration loggedTtl = Duration.ofSeconds(30);
+}
@@ -0,0 +1,38 @@
+package com.orders.cabinet.configuration;
+
+import com.orders.cabinet.service.AuthCacheService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+/**
+ * Authentication provider backed by {@link AuthCacheService}.
+ *
+ * <p>Used by HTTP Basic authentication instead of the default provider, so that credentials
+ * verified before are not checked with BCrypt again on every request.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CachedAuthenticationProvider implements AuthenticationProvider {
+
+    AuthCacheService authCache;
+
+    @Override
+    public Authentication authenticate(Authentication authentication) {
+        UserDetails user = authCache.authenticate(authentication.getName(), String.valueOf(authentication.getCredentials()));
+        return UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+}
@@ -0,0 +1,42 @@
+package com.orders.cabinet.configuration;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+/**
+ * Configuration properties for the nightly cleanup of orders.
+ * <p>
+ * This class is used to bind properties defined in the application's configuration
+ * files with the prefix {@code cleanup}. It includes the amount of orders deleted in one
+ * transaction and the lifetime of orders nobody reacted to. The delay between runs of the
+ * expiry is set with {@code cleanup.expiry-delay}.
+ * </p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Component
+@ConfigurationProperties(prefix = "cleanup")
+@Getter
+@Setter
+@Primary
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CleanUpProperties {
+    /**
+     * Maximum amount of orders deleted in one transaction, so locks are held only briefly.
+     */
+    Integer chunkSize = 1000;
+
+    /**
+     * Orders still in the new state this long after they were received are deleted.
+     */
+    Duration newOrderLifetime = Duration.ofMinutes(40);
+}
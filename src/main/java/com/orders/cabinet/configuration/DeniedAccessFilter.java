@@ -1,9 +1,6 @@
 package com.orders.cabinet.configuration;
 
-import com.orders.cabinet.event.Timed;
-import com.orders.cabinet.model.db.Shops;
-import com.orders.cabinet.repository.ShopRepository;
-import com.orders.cabinet.service.UserService;
+import com.orders.cabinet.service.AuthCacheService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,28 +9,22 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
-import java.util.Optional;
 
 @Slf4j
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class DeniedAccessFilter extends OncePerRequestFilter {
     final PopOrderProperties prop;
-    final UserService service;
-    final PasswordEncoder encoder;
-    final ShopRepository repository;
-
-    UserDetails userDetails;
+    final AuthCacheService authCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -59,15 +50,16 @@ public class DeniedAccessFilter extends OncePerRequestFilter {
         String[] credentials = getCredentials(authHeader);
         String username = credentials[0];
         String password = credentials[1];
-        userDetails = service.loadUserByUsername(username);
-
-        if (!isValidUser(username, password)) {
+        UserDetails userDetails;
+        try {
+            userDetails = authCache.authenticate(username, password);
+        } catch (AuthenticationException e) {
             log.warn("Invalid credentials for user {}", username);
             response.sendError(HttpStatus.UNAUTHORIZED.value());
             return;
         }
 
-        if (isShopUser(username) && !checkAccess(username, response)) {
+        if (isShopUser(userDetails) && !checkAccess(username, response)) {
             return;
         }
 
@@ -87,7 +79,7 @@ public class DeniedAccessFilter extends OncePerRequestFilter {
         return authHeader != null && authHeader.startsWith("Basic ");
     }
 
-    private String[] getCredentials(String authHeader) {
+    String[] getCredentials(String authHeader) {
         try {
             String base64Credentials = authHeader.substring("Basic ".length()).trim();
             byte[] decodedBytes = Base64.getDecoder().decode(base64Credentials);
@@ -99,26 +91,14 @@ public class DeniedAccessFilter extends OncePerRequestFilter {
         }
     }
 
-    private boolean isValidUser(String username, String password) {
-        try {
-            return encoder.matches(password, userDetails.getPassword());
-        } catch (Exception e) {
-            log.warn("User validation failed for user {}", username, e);
-            return false;
-        }
-    }
-
-    private boolean isShopUser(String username) {
-        // Cache user details if possible to avoid repeated database access
+    private boolean isShopUser(UserDetails userDetails) {
         return userDetails.getAuthorities()
                 .stream()
                 .anyMatch(authority -> "SHOP".equals(authority.getAuthority()));
     }
 
-    @Cacheable("shopCache")
     private boolean checkAccess(String addressId, HttpServletResponse response) throws IOException {
-        Optional<Shops> shopOpt = repository.getShopByShopId(addressId);
-        if (shopOpt.isEmpty() || !shopOpt.get().isLogged()) {
+        if (!authCache.isShopLogged(addressId)) {
             log.warn("Shop {} access denied", addressId);
             response.sendError(HttpStatus.METHOD_NOT_ALLOWED.value());
             return false;
@@ -0,0 +1,51 @@
+package com.orders.cabinet.configuration;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+/**
+ * Configuration properties for the in-process drug name cache.
+ * <p>
+ * This class is used to bind properties defined in the application's configuration
+ * files with the prefix {@code drug.cache}. It configures the bounded cache kept in front
+ * of the {@code drug_cache} table.
+ * </p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Component
+@ConfigurationProperties(prefix = "drug.cache")
+@Getter
+@Setter
+@Primary
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DrugCacheProperties {
+    /**
+     * Maximum amount of drugs kept in memory.
+     */
+    Long maximumSize = 200_000L;
+
+    /**
+     * Time a known drug is kept in memory after it was loaded.
+     */
+    Duration expireAfterWrite = Duration.ofHours(12);
+
+    /**
+     * Time an ID unknown to Geoapteka is remembered as unknown.
+     */
+    Duration negativeExpireAfterWrite = Duration.ofMinutes(10);
+
+    /**
+     * Load drugs from the {@code drug_cache} table into memory at startup.
+     */
+    Boolean warmUp = true;
+}
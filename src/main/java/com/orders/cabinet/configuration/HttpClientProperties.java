@@ -0,0 +1,82 @@
+package com.orders.cabinet.configuration;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+/**
+ * Configuration properties for the pooled HTTP client behind {@link org.springframework.web.client.RestTemplate}.
+ * <p>
+ * This class is used to bind properties defined in the application's configuration
+ * files with the prefix {@code http.client}. It includes pool-wide settings and
+ * per-upstream settings (pop-order, geoapteka, telegram) such as the maximum amount
+ * of connections to the upstream host and connect/read timeouts.
+ * </p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Component
+@ConfigurationProperties(prefix = "http.client")
+@Getter
+@Setter
+@Primary
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class HttpClientProperties {
+    /**
+     * Maximum amount of pooled connections for all hosts.
+     */
+    Integer maxTotal = 200;
+
+    /**
+     * Maximum time an idle connection is kept alive when the server doesn't ask for less.
+     */
+    Duration keepAlive = Duration.ofSeconds(60);
+
+    /**
+     * Idle connections older than this are evicted from the pool.
+     */
+    Duration idleEviction = Duration.ofSeconds(30);
+
+    /**
+     * Settings applied to hosts without an upstream of their own.
+     */
+    Upstream defaults = new Upstream();
+
+    /**
+     * Per-upstream settings, keyed by upstream name (pop-order, geoapteka, telegram).
+     */
+    Map<String, Upstream> upstreams = new HashMap<>();
+
+    /**
+     * Connection settings of one upstream host.
+     */
+    @Getter
+    @Setter
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Upstream {
+        /**
+         * Maximum amount of pooled connections to the upstream host.
+         */
+        Integer maxConnections = 20;
+
+        /**
+         * Timeout for establishing a connection.
+         */
+        Duration connectTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Timeout for waiting for data from an established connection.
+         */
+        Duration readTimeout = Duration.ofSeconds(30);
+    }
+}
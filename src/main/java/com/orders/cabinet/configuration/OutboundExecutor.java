@@ -0,0 +1,229 @@
+package com.orders.cabinet.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+/**
+ * Executors for blocking outbound calls to Booking, Geoapteka and Telegram, and for pushing to shop streams.
+ *
+ * <p>Outbound calls are kept off the shared {@code taskExecutor} so that a slow upstream
+ * can't stall other asynchronous tasks or push work back onto the scheduler thread.
+ * Every upstream has its own lane with its own executor, so tasks of one upstream never wait behind
+ * tasks of another one. Tasks run on virtual threads when the runtime supports them, otherwise on a
+ * platform pool of the lane with as many threads as the lane allows concurrent calls and a queue of
+ * {@code outbound.queue-capacity} tasks; tasks above it fail with a {@link RejectedExecutionException}.</p>
+ *
+ * <p>Each upstream has its own concurrency limit: {@link #call(String, Supplier)} holds
+ * a permit of the upstream for the duration of one HTTP call only, so nested calls can't
+ * deadlock. An upstream with an {@code outbound.rates} entry also gets its calls spaced out
+ * to that many per second, whichever service makes them; a call waits for its turn on the thread
+ * making it, which is a thread of the lane of the upstream when the task was started with it.
+ * Active and waiting calls and queued tasks are exposed as {@code cabinet.outbound.*} gauges.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class OutboundExecutor implements DisposableBean {
+
+    public static final String POP_ORDER = "pop-order";
+    public static final String GEOAPTEKA = "geoapteka";
+    public static final String TELEGRAM = "telegram";
+    public static final String STREAM = "stream";
+
+    OutboundProperties properties;
+    MeterRegistry meterRegistry;
+    boolean virtual;
+    Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the lanes of known upstreams.
+     *
+     * @param properties the outbound configuration
+     * @param meterRegistry the registry for lane gauges
+     */
+    public OutboundExecutor(OutboundProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.virtual = Boolean.TRUE.equals(properties.getVirtualThreads()) && supportsVirtualThreads();
+        log.info(virtual ? "Outbound calls run on virtual threads"
+                : "Outbound calls run on platform thread pools, one per upstream");
+        for (String upstream : new String[]{POP_ORDER, GEOAPTEKA, TELEGRAM, STREAM}) lane(upstream);
+    }
+
+    /**
+     * Runs the task asynchronously on the executor of the upstream.
+     *
+     * @param upstream the upstream the task calls, e.g. {@link #POP_ORDER}
+     * @param task the task, which may do any amount of blocking calls
+     * @return a {@link CompletableFuture} with the result of the task, failed if the lane is full
+     */
+    public <T> CompletableFuture<T> supplyAsync(String upstream, Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, lane(upstream).executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Outbound lane {} is full, task rejected", upstream);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Runs the task asynchronously on the executor of the upstream.
+     *
+     * @param upstream the upstream the task calls, e.g. {@link #POP_ORDER}
+     * @param task the task, which may do any amount of blocking calls
+     * @return a {@link CompletableFuture} completed when the task is done, failed if the lane is full
+     */
+    public CompletableFuture<Void> runAsync(String upstream, Runnable task) {
+        return supplyAsync(upstream, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Performs one blocking call to the upstream on the current thread,
+     * waiting for its turn within the rate of the upstream and for a free permit of the upstream first.
+     *
+     * @param upstream the upstream name, e.g. {@link #POP_ORDER}
+     * @param call the blocking call
+     * @return the result of the call
+     * @throws ResourceAccessException if the thread is interrupted while waiting for a permit
+     */
+    public <T> T call(String upstream, Supplier<T> call) {
+        Lane lane = lane(upstream);
+        lane.waiting.incrementAndGet();
+        try {
+            long delay = lane.reserve();
+            if (delay > 0) TimeUnit.NANOSECONDS.sleep(delay);
+            lane.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for " + upstream);
+        } finally {
+            lane.waiting.decrementAndGet();
+        }
+        lane.active.incrementAndGet();
+        try {
+            return call.get();
+        } finally {
+            lane.active.decrementAndGet();
+            lane.permits.release();
+        }
+    }
+
+    /**
+     * Shuts the executors down on context close.
+     */
+    @Override
+    public void destroy() {
+        lanes.values().forEach(lane -> lane.executor.shutdown());
+    }
+
+    private Lane lane(String upstream) {
+        return lanes.computeIfAbsent(upstream, name -> {
+            int limit = properties.getLimits().getOrDefault(name, properties.getDefaultLimit());
+            Double rate = properties.getRates().get(name);
+            ExecutorService executor = virtual ? createVirtualExecutor() : createPool(name, limit);
+            Lane lane = new Lane(new Semaphore(limit), executor,
+                    rate == null || rate <= 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+            Gauge.builder("cabinet.outbound.active", lane.active, AtomicInteger::get)
+                    .tag("upstream", name)
+                    .register(meterRegistry);
+            Gauge.builder("cabinet.outbound.waiting", lane.waiting, AtomicInteger::get)
+                    .tag("upstream", name)
+                    .register(meterRegistry);
+            if (executor instanceof ThreadPoolExecutor pool) {
+                Gauge.builder("cabinet.outbound.queued", pool, p -> p.getQueue().size())
+                        .tag("upstream", name)
+                        .register(meterRegistry);
+            }
+            return lane;
+        });
+    }
+
+    private static boolean supportsVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not supported", e);
+        }
+    }
+
+    private ExecutorService createPool(String upstream, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Outbound-" + upstream + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Executor, concurrency limit, rate and counters of one upstream.
+     */
+    private static final class Lane {
+        final Semaphore permits;
+        final ExecutorService executor;
+        final long interval;
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger waiting = new AtomicInteger();
+        long nextAt = System.nanoTime();
+
+        Lane(Semaphore permits, ExecutorService executor, long interval) {
+            this.permits = permits;
+            this.executor = executor;
+            this.interval = interval;
+        }
+
+        /**
+         * Reserves the next free slot within the rate of the upstream.
+         *
+         * @return the time to wait for the slot in nanoseconds, {@code 0} if the call may start now
+         */
+        synchronized long reserve() {
+            if (interval == 0) return 0;
+            long now = System.nanoTime();
+            long at = Math.max(now, nextAt);
+            nextAt = at + interval;
+            return at - now;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.orders.cabinet.configuration;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+/**
+ * Configuration properties for outbound HTTP calls.
+ * <p>
+ * This class is used to bind properties defined in the application's configuration
+ * files with the prefix {@code outbound}. It configures the executor which runs blocking
+ * calls to Booking, Geoapteka and Telegram, and the maximum amount of concurrent calls
+ * and of calls per second allowed per upstream.
+ * </p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Component
+@ConfigurationProperties(prefix = "outbound")
+@Getter
+@Setter
+@Primary
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OutboundProperties {
+    /**
+     * Use virtual threads for outbound calls when the runtime supports them (JDK 21+).
+     */
+    Boolean virtualThreads = true;
+
+    /**
+     * Maximum amount of tasks waiting for a thread per upstream when virtual threads are not available;
+     * each upstream then has a platform pool with as many threads as its limit of concurrent calls.
+     */
+    Integer queueCapacity = 1000;
+
+    /**
+     * Maximum amount of concurrent calls per upstream (pop-order, geoapteka, telegram, stream).
+     */
+    Map<String, Integer> limits = new HashMap<>();
+
+    /**
+     * Maximum amount of concurrent calls for an upstream without its own limit.
+     */
+    Integer defaultLimit = 16;
+
+    /**
+     * Maximum amount of calls per second per upstream; upstreams without a rate are limited by concurrency only.
+     */
+    Map<String, Double> rates = new HashMap<>();
+}
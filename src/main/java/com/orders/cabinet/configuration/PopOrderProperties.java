@@ -56,5 +56,20 @@ public class PopOrderProperties {
      * Rate to ask pop-order about new orders
      */
     String rate;
+    /**
+     * Maximum amount of shop IDs sent to /pop-order in one request.
+     * <p>
+     * Shops of the same corporation share credentials, so they are polled together
+     * in chunks of this size instead of one request per shop.
+     * </p>
+     */
+    Integer batchSize = 50;
+    /**
+     * Maximum amount of new orders kept in memory for a shop until the shop fetches them.
+     * <p>
+     * Orders above it are not kept; the next fetch of the shop is then answered from the database.
+     * </p>
+     */
+    Integer inboxCapacity = 500;
 
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.orders.cabinet.configuration;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+/**
+ * Configuration properties for refreshing cached price lists.
+ * <p>
+ * This class is used to bind properties defined in the application's configuration
+ * files with the prefix {@code pricelist.refresh}. It includes the refresh mode, the window
+ * the refreshes of all shops are spread across, and the amount of refreshes running at once.
+ * The request budget for Geoapteka is set per upstream in {@link OutboundProperties}.
+ * </p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Component
+@ConfigurationProperties(prefix = "pricelist.refresh")
+@Getter
+@Setter
+@Primary
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PriceListRefreshProperties {
+    /**
+     * {@code delta} applies only changed rows to the cached price list, {@code full} rebuilds it on every refresh.
+     * In the {@code delta} mode a price list whose drugs were added, removed or renamed is still rebuilt.
+     */
+    String mode = "delta";
+
+    /**
+     * Window the refreshes of all logged in shops are spread across; should match the refresh cron period.
+     */
+    Duration window = Duration.ofMinutes(30);
+
+    /**
+     * Maximum amount of price list refreshes running at once.
+     */
+    Integer concurrency = 4;
+
+    /**
+     * Cached price lists live for the window plus twice this margin, so a refresh may start this late
+     * after its slot without the cached price list expiring.
+     */
+    Duration expiryMargin = Duration.ofMinutes(2);
+}
@@ -1,7 +1,7 @@
 package com.orders.cabinet.configuration;
 
 import com.orders.cabinet.model.Role;
-import com.orders.cabinet.repository.ShopRepository;
+import com.orders.cabinet.service.AuthCacheService;
 import com.orders.cabinet.service.UserService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -11,13 +11,13 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
 import org.springframework.security.web.authentication.HttpStatusEntryPoint;
@@ -67,9 +67,8 @@ public class SecurityConfig {
      * Service used for loading user-specific data during authentication.
      */
     UserService userService;
-    PasswordEncoder encoder;
     PopOrderProperties prop;
-    ShopRepository repo;
+    AuthCacheService authCache;
 
     /**
      * Configures HTTP security and access controls.
@@ -85,7 +84,7 @@ public class SecurityConfig {
     @Bean
     public SecurityFilterChain web(HttpSecurity http) throws Exception {
         log.info("Configuring SecurityFilterChain...");
-        DeniedAccessFilter deniedAccessFilter = new DeniedAccessFilter(prop, userService, encoder, repo);
+        DeniedAccessFilter deniedAccessFilter = new DeniedAccessFilter(prop, authCache);
         log.info("DeniedAccessFilter created: {}", deniedAccessFilter);
 
         http.addFilterAfter(deniedAccessFilter, SwitchUserFilter.class)
@@ -106,6 +105,19 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Configures the provider used by HTTP basic authentication.
+     * <p>
+     * The provider verifies credentials through {@link AuthCacheService}, so credentials verified before
+     * are not checked with BCrypt again on every request.
+     * </p>
+     *
+     * @return the {@link AuthenticationProvider} bean.
+     */
+    @Bean
+    public AuthenticationProvider authenticationProvider() {
+        return new CachedAuthenticationProvider(authCache);
+    }
 
 }
 
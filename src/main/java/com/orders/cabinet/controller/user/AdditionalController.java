@@ -4,6 +4,7 @@ import com.orders.cabinet.event.Timed;
 import com.orders.cabinet.exception.NoSuchShopException;
 import com.orders.cabinet.model.api.PriceList;
 import com.orders.cabinet.model.api.dto.OrderDTO;
+import com.orders.cabinet.model.api.dto.OrderPageDTO;
 import com.orders.cabinet.model.db.dto.ShopInfoCacheDTO;
 import com.orders.cabinet.service.AdditionalService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -20,12 +21,14 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -170,7 +173,8 @@ public class AdditionalController {
     /**
      * Find all orders for the shop.
      *
-     * <p>Allowed for Shops. Returns a list of orders corresponding to the pharmacy.</p>
+     * <p>Allowed for Shops. Returns a list of orders corresponding to the pharmacy. The whole history is
+     * loaded at once, so shops with long histories should use {@code /get/page} or {@code /get/stream}.</p>
      *
      * @param userDetails the authenticated user details
      * @return a response entity containing a list of order DTOs
@@ -242,6 +246,100 @@ public class AdditionalController {
                         )
                 );
     }
+
+    /**
+     * Find a page of orders for the shop.
+     *
+     * <p>Allowed for Shops. Returns orders corresponding to the pharmacy from the newest to the oldest, at most
+     * {@code size} at once. The next page is requested with {@code after} set to {@code next} of the current page.</p>
+     *
+     * @param userDetails the authenticated user details
+     * @param after the cursor of the page
+     * @param size the maximum amount of orders on the page
+     * @param state the current state of the orders
+     * @param from the earliest creation time in epoch seconds
+     * @param to the latest creation time in epoch seconds
+     * @return a response entity containing the page
+     */
+    @GetMapping("/get/page")
+    @Operation(summary = "Find a page of orders for the shop",
+            description = "Allowed for Shops. Returns a page of orders corresponding to the pharmacy, from the newest to the oldest, optionally filtered by current state and creation time",
+            tags = {"Get"})
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation",
+                    content = @Content(
+                            schema = @Schema(implementation = OrderPageDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request. Page size is out of range",
+                    content = @Content(
+                            schema = @Schema(implementation = OrderPageDTO.class),
+                            examples = @ExampleObject(value = """
+                    {
+                      "errorMessage": "Page size must be from 1 to 500"
+                    }
+                """)
+                    )),
+            @ApiResponse(responseCode = "401", description = "Not authorized"),
+            @ApiResponse(responseCode = "500", description = "Some error. Error message should be in response body",
+                    content = @Content(
+                            schema = @Schema(implementation = OrderPageDTO.class),
+                            examples = @ExampleObject(value = """
+                    {
+                      "errorMessage": "Error message"
+                    }
+                """)
+                    ))
+    })
+    public CompletableFuture<ResponseEntity<OrderPageDTO>> getOrdersPage(@AuthenticationPrincipal UserDetails userDetails,
+                                                                         @RequestParam(required = false) Long after,
+                                                                         @RequestParam(defaultValue = "50") int size,
+                                                                         @RequestParam(required = false) String state,
+                                                                         @RequestParam(required = false) Long from,
+                                                                         @RequestParam(required = false) Long to) {
+        return additionalService.getOrdersPage(userDetails.getUsername(), after, size, state, from, to)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> {
+                    HttpStatus status = ex.getCause() instanceof IllegalArgumentException
+                            ? HttpStatus.BAD_REQUEST
+                            : HttpStatus.INTERNAL_SERVER_ERROR;
+                    return ResponseEntity.status(status).body(OrderPageDTO
+                            .builder()
+                                .errorMessage(ex.getLocalizedMessage())
+                            .build());
+                });
+    }
+
+    /**
+     * Stream all orders for the shop.
+     *
+     * <p>Allowed for Shops. Returns a JSON array of orders corresponding to the pharmacy from the newest to the oldest,
+     * written while the orders are read from the database.</p>
+     *
+     * @param userDetails the authenticated user details
+     * @param state the current state of the orders
+     * @param from the earliest creation time in epoch seconds
+     * @param to the latest creation time in epoch seconds
+     * @return a response entity streaming the orders
+     */
+    @GetMapping(value = "/get/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Stream all orders for the shop",
+            description = "Allowed for Shops. Streams orders corresponding to the pharmacy, from the newest to the oldest, optionally filtered by current state and creation time",
+            tags = {"Get"})
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful operation",
+                    content = @Content(
+                            array = @ArraySchema(schema = @Schema(implementation = OrderDTO.class)))),
+            @ApiResponse(responseCode = "401", description = "Not authorized")
+    })
+    public ResponseEntity<StreamingResponseBody> streamOrders(@AuthenticationPrincipal UserDetails userDetails,
+                                                              @RequestParam(required = false) String state,
+                                                              @RequestParam(required = false) Long from,
+                                                              @RequestParam(required = false) Long to) {
+        String shopId = userDetails.getUsername();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> additionalService.writeOrders(shopId, state, from, to, out));
+    }
+
     @Timed
     @PostMapping("/get-prop-by-string")
     @Operation(summary = "Find all drugs in shop by first symbols",
@@ -5,6 +5,7 @@ import com.orders.cabinet.exception.NoSuchShopException;
 import com.orders.cabinet.exception.OrderOutOfDateException;
 import com.orders.cabinet.model.api.dto.ControllerDTO;
 import com.orders.cabinet.model.api.dto.OrderDTO;
+import com.orders.cabinet.service.OrderStreamService;
 import com.orders.cabinet.service.UpdateOrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -18,10 +19,12 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -45,6 +48,7 @@ import java.util.concurrent.CompletableFuture;
 public class OrderManipulationController {
 
     UpdateOrderService service;
+    OrderStreamService streamService;
 
     /**
      * Retrieves new orders for a shop.
@@ -138,6 +142,36 @@ public class OrderManipulationController {
                 });
     }
 
+    /**
+     * Opens a stream of new orders for a shop.
+     *
+     * <p>New orders are pushed as {@code orders} events with a list of orders as soon as they are received,
+     * so the shop doesn't need to poll for them.</p>
+     *
+     * @param userDetails the authenticated user details
+     * @return the stream of new orders for the shop
+     */
+    @GetMapping(value = "${user.orders.stream}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream New orders for shop",
+            description = "Allowed for shops. Keeps the connection open and pushes orders for the pharmacy that made the request as server-sent events",
+            tags = {"Get"})
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream opened",
+                    content = @Content(
+                            examples = @ExampleObject(value = """
+                event:orders
+                data:[{"idOrder":"1234567890","phone":"380501234567","time":"13:41:00 29.07.2024","state":"New","data":[]}]
+                """)
+                    )),
+            @ApiResponse(responseCode = "401", description = "Not authorized",
+                    content = @Content(
+                            examples = @ExampleObject(value = "    ")
+                    ))
+    })
+    public SseEmitter streamNewOrders(@AuthenticationPrincipal UserDetails userDetails) {
+        return streamService.subscribe(userDetails.getUsername());
+    }
+
     /**
      * Confirms an order for a shop.
      *
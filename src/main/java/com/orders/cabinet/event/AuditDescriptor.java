@@ -0,0 +1,187 @@
+package com.orders.cabinet.event;
+
+import com.orders.cabinet.model.db.*;
+import com.orders.cabinet.model.db.order.OrderDb;
+import com.orders.cabinet.model.db.order.PrepsInOrderDb;
+import com.orders.cabinet.model.db.order.State;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.time.Instant;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+/**
+ * Describes how an audited entity is written to the audit log.
+ *
+ * <p>A descriptor holds the type name the entity is logged under, the accessor of its ID and the accessors of
+ * its audited fields, written down once per entity class, so building an audit record doesn't walk the whole
+ * entity like {@code toString()} does. Associations are logged by the ID of the associated entity, collections
+ * are not logged, and secret fields like passwords are logged only as changed.</p>
+ *
+ * @param <T> the type of the entity
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+public final class AuditDescriptor<T> {
+
+    /**
+     * Value logged instead of the value of a secret field.
+     */
+    static final String SECRET = "***";
+
+    private static final Map<Class<?>, AuditDescriptor<?>> DESCRIPTORS = Map.of(
+            Shops.class, new AuditDescriptor<Shops>("shops", Shops::getShopId)
+                    .secret("password")
+                    .field("role", Shops::getRole)
+                    .field("corp", shop -> shop.getCorp() == null ? null : shop.getCorp().getCorpId()),
+            Corp.class, new AuditDescriptor<Corp>("corp", Corp::getCorpId)
+                    .field("login", Corp::getLogin)
+                    .secret("password")
+                    .field("corpName", Corp::getCorpName)
+                    .field("lifeTime", Corp::getLifeTime),
+            Admin.class, new AuditDescriptor<Admin>("admin", Admin::getId)
+                    .field("username", Admin::getUsername)
+                    .secret("password")
+                    .field("role", Admin::getRole),
+            OrderDb.class, new AuditDescriptor<OrderDb>("orders", OrderDb::getId)
+                    .field("orderId", OrderDb::getOrderId)
+                    .field("shop", order -> order.getShop() == null ? null : order.getShop().getShopId())
+                    .field("shopExtId", OrderDb::getShopExtId)
+                    .field("phone", OrderDb::getPhone)
+                    .field("agent", OrderDb::getAgent)
+                    .field("timestamp", OrderDb::getTimestamp)
+                    .field("shipping", OrderDb::getShipping)
+                    .field("expiresAt", OrderDb::getExpiresAt),
+            State.class, new AuditDescriptor<State>("states", State::getId)
+                    .field("order", state -> state.getOrder() == null ? null : state.getOrder().getId())
+                    .field("shop", state -> state.getShop() == null ? null : state.getShop().getShopId())
+                    .field("time", State::getTime)
+                    .field("state", State::getState)
+                    .field("reason", State::getReason),
+            PrepsInOrderDb.class, new AuditDescriptor<PrepsInOrderDb>("preps_in_order", PrepsInOrderDb::getId)
+                    .field("state", prep -> prep.getState() == null ? null : prep.getState().getId())
+                    .field("morionId", PrepsInOrderDb::getMorionId)
+                    .field("extId", PrepsInOrderDb::getExtId)
+                    .field("price", PrepsInOrderDb::getPrice)
+                    .field("quant", PrepsInOrderDb::getQuant)
+                    .field("drugName", PrepsInOrderDb::getDrugName)
+                    .field("drugLink", PrepsInOrderDb::getDrugLink),
+            DrugCache.class, new AuditDescriptor<DrugCache>("drug_cache", DrugCache::getDrugId)
+                    .field("drugName", DrugCache::getDrugName)
+                    .field("drugLink", DrugCache::getDrugLink),
+            ShopInfoCache.class, new AuditDescriptor<ShopInfoCache>("shop_info_cache", ShopInfoCache::getShopId)
+                    .field("corpId", ShopInfoCache::getCorpId)
+                    .field("corpName", ShopInfoCache::getCorpName)
+                    .field("name", ShopInfoCache::getName)
+                    .field("mark", ShopInfoCache::getMark)
+                    .field("area", ShopInfoCache::getArea)
+                    .field("city", ShopInfoCache::getCity)
+                    .field("street", ShopInfoCache::getStreet)
+                    .field("update", ShopInfoCache::getUpdate)
+                    .field("openHours", ShopInfoCache::getOpenHours));
+
+    private final String type;
+    private final Function<T, Object> id;
+    private final Map<String, Function<T, Object>> fields = new LinkedHashMap<>();
+
+    private AuditDescriptor(String type, Function<T, Object> id) {
+        this.type = type;
+        this.id = id;
+    }
+
+    private AuditDescriptor<T> field(String name, Function<T, Object> accessor) {
+        fields.put(name, accessor);
+        return this;
+    }
+
+    private AuditDescriptor<T> secret(String name) {
+        fields.put(name, entity -> SECRET);
+        return this;
+    }
+
+    /**
+     * Finds the descriptor of an entity.
+     *
+     * @param entity the entity
+     * @return the descriptor, or {@code null} if the entity is not audited
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> AuditDescriptor<T> of(T entity) {
+        return (AuditDescriptor<T>) DESCRIPTORS.get(entity.getClass());
+    }
+
+    /**
+     * @return the type name the entity is logged under
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the ID of the entity as a string.
+     *
+     * @param entity the entity
+     * @return the ID, or {@code null} if it is not assigned yet
+     */
+    public String getId(T entity) {
+        Object value = id.apply(entity);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Checks whether the field is logged.
+     *
+     * @param name the name of the field
+     * @return {@code true} if the field is logged
+     */
+    public boolean hasField(String name) {
+        return fields.containsKey(name);
+    }
+
+    /**
+     * Returns the logged value of a field of the entity.
+     *
+     * @param entity the entity
+     * @param name the name of the field, see {@link #hasField(String)}
+     * @return the value
+     */
+    public Object getValue(T entity, String name) {
+        return toValue(fields.get(name).apply(entity));
+    }
+
+    /**
+     * Returns the logged values of all fields of the entity.
+     *
+     * @param entity the entity
+     * @return the values by field names
+     */
+    public Map<String, Object> snapshot(T entity) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        fields.forEach((name, accessor) -> values.put(name, toValue(accessor.apply(entity))));
+        return values;
+    }
+
+    /**
+     * Converts a value to one that can be written to JSON and doesn't change afterwards.
+     *
+     * <p>Entities are converted to their IDs without initializing lazy proxies, dates to ISO-8601 strings.</p>
+     *
+     * @param value the value
+     * @return the converted value
+     */
+    static Object toValue(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean)
+            return value;
+        if (value instanceof Enum<?> constant) return constant.name();
+        if (value instanceof Date date) return Instant.ofEpochMilli(date.getTime()).toString();
+        if (value instanceof TemporalAccessor) return value.toString();
+        if (value instanceof HibernateProxy proxy) return toValue(proxy.getHibernateLazyInitializer().getIdentifier());
+        AuditDescriptor<Object> descriptor = of(value);
+        return descriptor == null ? value.toString() : descriptor.getId(value);
+    }
+}
@@ -0,0 +1,51 @@
+package com.orders.cabinet.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+/**
+ * Destination of audit events of controller calls.
+ *
+ * <p>An event holds the user, time, method and path of the call and its request and response bodies.
+ * Implementations must return without waiting for the event to be written, as events are published on the
+ * request thread. The implementation is chosen with {@code audit.controller.sink}.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+public interface ControllerEventSink {
+
+    /**
+     * Publishes an event to be written later.
+     *
+     * <p>The event must not be changed after it was published.</p>
+     *
+     * @param event the event
+     */
+    void publish(Map<String, Object> event);
+
+    /**
+     * Serializes an event to JSON.
+     *
+     * <p>If some value of the event can't be serialized, the string representation of the event is written
+     * as a JSON string instead.</p>
+     *
+     * @param mapper the mapper
+     * @param event the event
+     * @return the JSON
+     */
+    static String toJson(ObjectMapper mapper, Map<String, Object> event) {
+        try {
+            return mapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            try {
+                return mapper.writeValueAsString(String.valueOf(event));
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
@@ -2,9 +2,8 @@ package com.orders.cabinet.event;
 
 import com.orders.cabinet.model.db.*;
 import com.orders.cabinet.service.LogEntryService;
-import jakarta.persistence.PrePersist;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.PreRemove;
-import jakarta.persistence.PreUpdate;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
@@ -12,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 /**
  * EntityAuditListener is an event listener for auditing entity lifecycle events.
  *
@@ -19,6 +19,11 @@ import java.time.LocalDateTime;
  * and logs these events using the {@link LogEntryService}. It utilizes JPA lifecycle callback
  * methods to perform actions before persisting, updating, or removing entities.</p>
  *
+ * <p>Entries are only added to the buffer of the {@link LogEntryService} and written later in batches,
+ * so the callbacks don't block the transaction of the entity. An entry holds the type and the ID of the
+ * entity and, for created entities, the values of its fields taken with its {@link AuditDescriptor}.
+ * Updates are logged by the {@link EntityAuditUpdateListener}, which knows the changed fields.</p>
+ *
  * @author Vasylenko Oleksii
  * @company Proxima Research International
  * @version 1.0
@@ -42,55 +47,46 @@ public class EntityAuditListener {
     }
 
     /**
-     * Callback method invoked before an entity is persisted.
+     * Callback method invoked after an entity is persisted.
      *
      * <p>This method logs the creation of an entity and saves a log entry with the action
-     * status set to "CREATED".</p>
+     * status set to "CREATED" and the values of the entity's fields. It runs after persisting,
+     * so generated IDs are already assigned.</p>
      *
-     * @param entity the entity that is about to be persisted
+     * @param entity the entity that was persisted
      */
-    @PrePersist
-    public void onPrePersist(Object entity) {
+    @PostPersist
+    public void onPostPersist(Object entity) {
         // Log or audit creation event
 //        log.info("Entity created: " + entity.toString());
-        saveLog(entity, "CREATED");
+        AuditDescriptor<Object> descriptor = AuditDescriptor.of(entity);
+        if (descriptor != null) saveLog(descriptor, entity, "CREATED", descriptor.snapshot(entity));
     }
 
     /**
      * Saves a log entry with the specified status.
      *
+     * @param descriptor the descriptor of the entity
      * @param entity the entity associated with the log entry
-     * @param status the status of the action (e.g., "CREATED", "UPDATED", "DELETED")
+     * @param status the status of the action (e.g., "CREATED", "DELETED")
+     * @param changes the logged field values, or {@code null}
      */
-    private void saveLog(Object entity, String status) {
+    private void saveLog(AuditDescriptor<Object> descriptor, Object entity, String status, Map<String, Object> changes) {
         service.saveLogEntryAsync(LogEntityEntry
                 .builder()
                 .timestamp(LocalDateTime.now())
                 .action(status)
-                .message(entity.toString())
+                .entityType(descriptor.getType())
+                .entityId(descriptor.getId(entity))
+                .changes(changes)
                 .build());
     }
 
-    /**
-     * Callback method invoked before an entity is updated.
-     *
-     * <p>This method logs the update of an entity and saves a log entry with the action
-     * status set to "UPDATED".</p>
-     *
-     * @param entity the entity that is about to be updated
-     */
-    @PreUpdate
-    public void onPreUpdate(Object entity) {
-        // Log or audit update event
-//        log.info("Entity updated: " + entity.toString());
-        saveLog(entity, "UPDATED");
-    }
-
     /**
      * Callback method invoked before an entity is removed.
      *
      * <p>This method logs the deletion of an entity and saves a log entry with the action
-     * status set to "DELETED".</p>
+     * status set to "DELETED". Only the type and the ID of the entity are logged.</p>
      *
      * @param entity the entity that is about to be removed
      */
@@ -98,6 +94,7 @@ public class EntityAuditListener {
     public void onPreRemove(Object entity) {
         // Log or audit deletion event
 //        log.info("Entity deleted: " + entity.toString());
-        saveLog(entity, "DELETED");
+        AuditDescriptor<Object> descriptor = AuditDescriptor.of(entity);
+        if (descriptor != null) saveLog(descriptor, entity, "DELETED", null);
     }
 }
@@ -0,0 +1,115 @@
+package com.orders.cabinet.event;
+
+import com.orders.cabinet.model.db.LogEntityEntry;
+import com.orders.cabinet.service.LogEntryService;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+/**
+ * Hibernate listener auditing updates of entities.
+ *
+ * <p>Unlike a JPA callback, Hibernate tells which properties of the entity are dirty and what their previous
+ * values were, so an update is logged only with the fields that actually changed, each with its previous and new
+ * value. Only entities with an {@link AuditDescriptor} are logged.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class EntityAuditUpdateListener implements PostUpdateEventListener {
+
+    EntityManagerFactory entityManagerFactory;
+    LogEntryService service;
+
+    /**
+     * Registers the listener with Hibernate.
+     */
+    @PostConstruct
+    public void register() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_UPDATE, this);
+    }
+
+    /**
+     * Logs the changed fields of an updated entity.
+     *
+     * @param event the update event
+     */
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object entity = event.getEntity();
+        AuditDescriptor<Object> descriptor = AuditDescriptor.of(entity);
+        if (descriptor == null) return;
+
+        Map<String, Object> changes = getChanges(descriptor, entity, event);
+        if (changes.isEmpty()) return;
+
+        service.saveLogEntryAsync(LogEntityEntry
+                .builder()
+                .timestamp(LocalDateTime.now())
+                .action("UPDATED")
+                .entityType(descriptor.getType())
+                .entityId(descriptor.getId(entity))
+                .changes(changes)
+                .build());
+    }
+
+    /**
+     * Collects the changed fields with their previous and new values.
+     *
+     * <p>If Hibernate doesn't know the dirty properties, e.g. for a merged entity, the previous and new state
+     * are compared, and if the previous state is unknown too, all fields are logged with their new values.</p>
+     */
+    private Map<String, Object> getChanges(AuditDescriptor<Object> descriptor, Object entity, PostUpdateEvent event) {
+        String[] names = event.getPersister().getPropertyNames();
+        Object[] oldState = event.getOldState();
+        if (oldState == null) return descriptor.snapshot(entity);
+
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (int i : getDirtyProperties(event)) {
+            if (!descriptor.hasField(names[i])) continue;
+            Object value = descriptor.getValue(entity, names[i]);
+            Object previous = AuditDescriptor.SECRET.equals(value) ? value : AuditDescriptor.toValue(oldState[i]);
+            Map<String, Object> change = new LinkedHashMap<>();
+            change.put("from", previous);
+            change.put("to", value);
+            changes.put(names[i], change);
+        }
+        return changes;
+    }
+
+    private static int[] getDirtyProperties(PostUpdateEvent event) {
+        if (event.getDirtyProperties() != null) return event.getDirtyProperties();
+        Object[] state = event.getState();
+        Object[] oldState = event.getOldState();
+        return IntStream.range(0, state.length)
+                .filter(i -> !Objects.equals(state[i], oldState[i]))
+                .toArray();
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+}
@@ -19,7 +19,7 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
 
 /**
  * Mapper component for converting between various representations of orders and their preparations.
@@ -87,21 +87,20 @@ public class OrderMapper {
      * Converts a list of {@link OrderPreps} to a list of {@link OrderPrepsDTO}.
      *
      * <p>This method maps each {@link OrderPreps} object to an {@link OrderPrepsDTO} object. It also
-     * resolves drug names asynchronously using {@link DrugNameService}.</p>
+     * resolves drug names in bulk using {@link DrugNameService}.</p>
      *
      * @param orderPreps the list of {@link OrderPreps} objects to be converted
      * @return the list of corresponding {@link OrderPrepsDTO} objects
      */
     private List<OrderPrepsDTO> getPrersDtoList (List<OrderPreps> orderPreps) {
         List<OrderPrepsDTO> result = new ArrayList<>();
+        Map<String, DrugCache> drugs = drugNameService.resolveAll(orderPreps.stream()
+                .map(OrderPreps::getId)
+                .toList());
         for (int i = 0; i < orderPreps.size(); i++) {
 
-            DrugCache drugCache = null;
-            try {
-                drugCache = drugNameService
-                        .getDrugName(orderPreps.get(i).getId())
-                        .get();
-            } catch (InterruptedException | ExecutionException e) {
+            DrugCache drugCache = drugs.get(orderPreps.get(i).getId());
+            if (drugCache == null) {
                 drugCache = new DrugCache(orderPreps.get(i).getId(), "Unknown Drug", "");
             }
 
@@ -122,21 +121,20 @@ public class OrderMapper {
      * Converts a list of {@link PrepsInOrderDb} to a list of {@link OrderPrepsDTO}.
      *
      * <p>This method maps each {@link PrepsInOrderDb} object to an {@link OrderPrepsDTO} object. It also
-     * resolves drug names asynchronously using {@link DrugNameService}.</p>
+     * resolves drug names in bulk using {@link DrugNameService}.</p>
      *
      * @param orderPreps the list of {@link PrepsInOrderDb} objects to be converted
      * @return the list of corresponding {@link OrderPrepsDTO} objects
      */
     private List<OrderPrepsDTO> getPrersDtoListFromDB (List<PrepsInOrderDb> orderPreps) {
         List<OrderPrepsDTO> result = new ArrayList<>();
+        Map<String, DrugCache> drugs = drugNameService.resolveAll(orderPreps.stream()
+                .map(PrepsInOrderDb::getMorionId)
+                .toList());
         for (int i = 0; i < orderPreps.size(); i++) {
 
-            DrugCache drugName = null;
-            try {
-                drugName = drugNameService
-                        .getDrugName(orderPreps.get(i).getMorionId())
-                        .get();
-            } catch (InterruptedException | ExecutionException e) {
+            DrugCache drugName = drugs.get(orderPreps.get(i).getMorionId());
+            if (drugName == null) {
                 drugName = new DrugCache(orderPreps.get(i).getMorionId(), "Unknown Drug", "");
             }
 
@@ -0,0 +1,54 @@
+package com.orders.cabinet.model.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+/**
+ * Data Transfer Object (DTO) for a page of the order history.
+ *
+ * <p>Orders are returned from the newest to the oldest. The next page is requested with the
+ * {@code next} value of the current page, until it is absent.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Data Transfer Object for a page of orders")
+public class OrderPageDTO {
+
+    /**
+     * Orders of the page.
+     */
+    @Schema(description = "Orders of the page, from the newest to the oldest")
+    List<OrderDTO> orders;
+
+    /**
+     * Cursor of the next page.
+     *
+     * <p>This field is absent on the last page.</p>
+     *
+     * @example "1050"
+     */
+    @Schema(description = "Value of 'after' for the next page. Absent on the last page", example = "1050")
+    Long next;
+
+    /**
+     * Error message.
+     *
+     * <p>This field contains an error message if an exception occurred during processing.</p>
+     *
+     * @example "Houston, we have problems."
+     */
+    @Schema(description = "Error message. For any exception if exist", example = "Houston, we have problems.")
+    String errorMessage;
+}
@@ -4,12 +4,17 @@ import com.orders.cabinet.event.EntityAuditListener;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Persistable;
 /**
  * Represents a cached drug entry in the system.
  *
  * <p>This entity class maps to the "drug_cache" table in the database and stores information
  * about drugs, including their unique identifier and name.</p>
  *
+ * <p>The ID is assigned from Geoapteka, so the entity tells Spring Data itself whether it is new:
+ * entries built in code are inserted right away instead of being merged, which would read every
+ * entry by its ID first.</p>
+ *
  * @author Vasylenko Oleksii
  * @company Proxima Research International
  * @version 1.0
@@ -17,13 +22,11 @@ import lombok.experimental.FieldDefaults;
  */
 @Entity
 @Table(name = "drug_cache")
-@AllArgsConstructor
 @NoArgsConstructor
-@Builder
 @Data
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @EntityListeners(EntityAuditListener.class)
-public class DrugCache {
+public class DrugCache implements Persistable<String> {
 
     /**
      * The unique identifier for the drug.
@@ -52,4 +55,44 @@ public class DrugCache {
      */
     @Column(name = "drug_link", nullable = false)
     String drugLink;
+
+    /**
+     * Whether the entry was loaded from or written to the "drug_cache" table.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    boolean stored;
+
+    /**
+     * Constructs a new entry that is not stored yet.
+     *
+     * @param drugId the ID of the drug
+     * @param drugName the name of the drug
+     * @param drugLink the link to the drug info
+     */
+    @Builder
+    public DrugCache(String drugId, String drugName, String drugLink) {
+        this.drugId = drugId;
+        this.drugName = drugName;
+        this.drugLink = drugLink;
+    }
+
+    @Override
+    public String getId() {
+        return drugId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        stored = true;
+    }
 }
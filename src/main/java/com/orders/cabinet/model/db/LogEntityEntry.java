@@ -3,8 +3,11 @@ package com.orders.cabinet.model.db;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 /**
  * Represents a log entry in the system.
  *
@@ -28,10 +31,12 @@ public class LogEntityEntry {
     /**
      * The unique identifier for the log entry.
      *
-     * <p>This field is used as the primary key for the "log_entries" table and is auto-generated.</p>
+     * <p>This field is used as the primary key for the "log_entries" table and is generated
+     * from the {@code log_entries_seq} sequence in blocks of 50.</p>
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "log_entries_seq")
+    @SequenceGenerator(name = "log_entries_seq", sequenceName = "log_entries_seq", allocationSize = 50)
     Long id;
 
     /**
@@ -51,10 +56,35 @@ public class LogEntityEntry {
     @Column(name = "action", length = 10)
     String action;
 
+    /**
+     * The type of the entity the action was performed on.
+     *
+     * <p>This field stores the name the entity is audited under, e.g. {@code orders}.</p>
+     */
+    @Column(name = "entity_type", length = 50)
+    String entityType;
+
+    /**
+     * The ID of the entity the action was performed on.
+     */
+    @Column(name = "entity_id")
+    String entityId;
+
+    /**
+     * The fields of the entity affected by the action.
+     *
+     * <p>For created entities this field holds the values of all audited fields, for updated entities
+     * the previous and new values of the changed fields. It is stored as JSONB.</p>
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "changes", columnDefinition = "JSONB")
+    Map<String, Object> changes;
+
     /**
      * A message providing details about the log entry.
      *
-     * <p>This field can contain a detailed message or description and is stored as text.</p>
+     * <p>This field can contain a detailed message or description and is stored as text. Entries of entity
+     * changes use {@link #entityType}, {@link #entityId} and {@link #changes} instead.</p>
      */
     @Column(name = "message", columnDefinition = "TEXT")
     String message;
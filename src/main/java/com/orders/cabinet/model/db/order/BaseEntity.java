@@ -26,12 +26,14 @@ public class BaseEntity {
      * The unique identifier for the entity.
      *
      * <p>This field is the primary key for the entity and is automatically generated
-     * by the persistence provider using the {@code GenerationType.IDENTITY} strategy.
-     * It is marked as {@code updatable = false} to ensure it is not modified after
-     * entity creation.</p>
+     * by the persistence provider from the shared {@code cabinet_id_seq} sequence. Ids are
+     * allocated in blocks of 50, so inserts don't need a round trip for every id and can be
+     * sent in JDBC batches. It is marked as {@code updatable = false} to ensure it is not
+     * modified after entity creation.</p>
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cabinet_id_seq")
+    @SequenceGenerator(name = "cabinet_id_seq", sequenceName = "cabinet_id_seq", allocationSize = 50)
     @Column(name = "id", updatable = false, nullable = false)
     Long id;
 }
@@ -6,6 +6,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
+import java.util.Date;
 import java.util.List;
 /**
  * Entity representing an order in the system.
@@ -93,6 +94,15 @@ public class OrderDb extends BaseEntity{
     @Column(name = "shipping")
     String shipping;
 
+    /**
+     * Time when the order expires.
+     *
+     * <p>This field is set from the current state of the order whenever it changes. Orders past this time
+     * are deleted, see {@code CleanUpService}.</p>
+     */
+    @Column(name = "expires_at")
+    Date expiresAt;
+
     /**
      * List of states associated with the order.
      *
@@ -102,5 +112,6 @@ public class OrderDb extends BaseEntity{
      * persisted automatically.</p>
      */
     @OneToMany(mappedBy = "order", fetch = FetchType.EAGER, cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id ASC")
     List<State> states;
 }
@@ -1,12 +1,19 @@
 package com.orders.cabinet.repository;
 
 import com.orders.cabinet.model.db.order.OrderDb;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 /**
  * Repository interface for {@link OrderDb} entity.
  *
@@ -30,6 +37,15 @@ import java.util.Optional;
  */
 public interface OrderRepository extends JpaRepository<OrderDb, Long> {
 
+    /**
+     * Query of the order history of a shop, shared by the paginated and the streamed variants.
+     */
+    String ORDER_HISTORY = "SELECT o FROM OrderDb o " +
+            "WHERE o.shop.shopId = :shopId AND o.id < :afterId " +
+            "AND o.timestamp >= :from AND o.timestamp <= :to " +
+            "AND (:state IS NULL OR EXISTS (SELECT s FROM State s WHERE s.order = o AND s.state = :state " +
+            "AND NOT EXISTS (SELECT l FROM State l WHERE l.order = o AND l.id > s.id)))";
+
     /**
      * Finds all orders and fetches their states and shop details.
      *
@@ -71,4 +87,142 @@ public interface OrderRepository extends JpaRepository<OrderDb, Long> {
             "JOIN FETCH o.shop s " +
             "WHERE s.shopId = :shopId")
     List<OrderDb> findByShopId(@Param("shopId") String shopId);
+
+    /**
+     * Finds stored orders of the given shops among the given order IDs.
+     *
+     * <p>Returns rows of the database ID, the shop ID and the order ID, so the orders and their states
+     * are not loaded.</p>
+     *
+     * @param shopIds the shop IDs
+     * @param orderIds the order IDs
+     * @return the rows of matching orders
+     */
+    @Query("SELECT o.id, o.shop.shopId, o.orderId FROM OrderDb o " +
+            "WHERE o.shop.shopId IN :shopIds AND o.orderId IN :orderIds")
+    List<Object[]> findIdsByShopIdsAndOrderIds(@Param("shopIds") Collection<String> shopIds,
+                                               @Param("orderIds") Collection<String> orderIds);
+
+    /**
+     * Deletes a chunk of finished and expired orders together with their states and preparations.
+     *
+     * <p>The current state of an order is its state with the highest ID. An order is deleted if its current state
+     * is one of the finished states, if it is confirmed and older than the lifetime of its corporation in hours,
+     * or if it is new and was received before the given deadline. Orders are taken in the order of their
+     * IDs after the given one, so every chunk continues where the previous one stopped.</p>
+     *
+     * <p>Everything is deleted with one statement, so the deleted orders are not loaded and entity listeners
+     * are not called.</p>
+     *
+     * @param afterId the database ID of the last order of the previous chunk
+     * @param finished the finished states
+     * @param confirmed the confirmed state
+     * @param neww the new state
+     * @param now the current time
+     * @param newDeadline orders in the new state received before this time are deleted
+     * @param chunk the maximum amount of orders to delete
+     * @return rows of the database ID, the shop ID, the order ID and the current state of the deleted orders
+     */
+    @Query(value = "WITH doomed AS (" +
+            "SELECT o.id, l.state FROM orders o " +
+            "JOIN shops sh ON sh.shop_id = o.shop_id " +
+            "LEFT JOIN corp c ON c.corp_id = sh.corp_id " +
+            "JOIN LATERAL (SELECT s.state, s.time FROM states s WHERE s.order_id = o.id " +
+            "ORDER BY s.id DESC LIMIT 1) l ON TRUE " +
+            "WHERE o.id > :afterId AND (l.state IN (:finished) " +
+            "OR (l.state = :confirmed AND l.time < CAST(:now AS TIMESTAMP) - make_interval(hours => c.life_time)) " +
+            "OR (l.state = :neww AND l.time < CAST(:newDeadline AS TIMESTAMP))) " +
+            "ORDER BY o.id LIMIT :chunk), " +
+            "deleted_preps AS (DELETE FROM preps_in_order p USING states s, doomed d " +
+            "WHERE p.state_id = s.id AND s.order_id = d.id), " +
+            "deleted_states AS (DELETE FROM states s USING doomed d WHERE s.order_id = d.id) " +
+            "DELETE FROM orders o USING doomed d WHERE o.id = d.id " +
+            "RETURNING o.id, o.shop_id, o.order_id, d.state",
+            nativeQuery = true)
+    List<Object[]> deleteFinishedAndExpired(@Param("afterId") Long afterId,
+                                            @Param("finished") Collection<String> finished,
+                                            @Param("confirmed") String confirmed,
+                                            @Param("neww") String neww,
+                                            @Param("now") LocalDateTime now,
+                                            @Param("newDeadline") LocalDateTime newDeadline,
+                                            @Param("chunk") int chunk);
+
+    /**
+     * Deletes a chunk of orders past their expiry time together with their states and preparations.
+     *
+     * <p>Orders are taken from the earliest expiry time. Orders locked by a running write are skipped
+     * and left for the next chunk.</p>
+     *
+     * @param now the current time
+     * @param chunk the maximum amount of orders to delete
+     * @return rows of the shop ID and the order ID of the deleted orders
+     */
+    @Query(value = "WITH doomed AS (" +
+            "SELECT id FROM orders WHERE expires_at < CAST(:now AS TIMESTAMP) " +
+            "ORDER BY expires_at LIMIT :chunk FOR UPDATE SKIP LOCKED), " +
+            "deleted_preps AS (DELETE FROM preps_in_order p USING states s, doomed d " +
+            "WHERE p.state_id = s.id AND s.order_id = d.id), " +
+            "deleted_states AS (DELETE FROM states s USING doomed d WHERE s.order_id = d.id) " +
+            "DELETE FROM orders o USING doomed d WHERE o.id = d.id " +
+            "RETURNING o.shop_id, o.order_id",
+            nativeQuery = true)
+    List<Object[]> deleteExpired(@Param("now") LocalDateTime now, @Param("chunk") int chunk);
+
+    /**
+     * Finds orders of a shop whose reversed order ID matches the given pattern.
+     *
+     * <p>The {@code order_id_reversed} column is generated by the database and indexed together with the shop ID,
+     * so a lookup by the last symbols of the order ID is a prefix match on the index. Orders without any of the
+     * finished states come first, then the others, the newest first within each group.</p>
+     *
+     * @param shopId the ID of the shop
+     * @param pattern the {@code LIKE} pattern, the reversed last symbols followed by {@code %}
+     * @param finished the states of finished orders
+     * @return the matching orders
+     */
+    @Query(value = "SELECT * FROM orders o WHERE o.shop_id = :shopId AND o.order_id_reversed LIKE :pattern " +
+            "ORDER BY EXISTS (SELECT 1 FROM states s WHERE s.order_id = o.id AND s.state IN (:finished)), o.id DESC",
+            nativeQuery = true)
+    List<OrderDb> findByShopIdAndReversedOrderIdLike(@Param("shopId") String shopId, @Param("pattern") String pattern,
+                                                     @Param("finished") Collection<String> finished);
+
+    /**
+     * Finds orders of a shop older than the given order, from the newest to the oldest.
+     *
+     * <p>Used for keyset pagination and streaming of the order history. Orders can be filtered by their current
+     * state, which is the state with the highest ID, and by the time range of their creation.</p>
+     *
+     * @param shopId the shop ID
+     * @param afterId the database ID of the last order of the previous page
+     * @param state the current state of the orders, or {@code null} for any
+     * @param from the earliest creation time in epoch seconds
+     * @param to the latest creation time in epoch seconds
+     * @param limit the maximum amount of orders
+     * @return the matching orders
+     */
+    @Query(ORDER_HISTORY + " ORDER BY o.id DESC")
+    List<OrderDb> findHistoryPage(@Param("shopId") String shopId, @Param("afterId") Long afterId,
+                                  @Param("state") String state, @Param("from") Long from, @Param("to") Long to,
+                                  Limit limit);
+
+    /**
+     * Streams orders of a shop older than the given order, from the newest to the oldest.
+     *
+     * <p>Same as {@link #findHistoryPage}, but rows are fetched from the database in chunks while the stream
+     * is consumed. The stream must be consumed and closed in a transaction.</p>
+     *
+     * @param shopId the shop ID
+     * @param afterId the database ID of the order to start after
+     * @param state the current state of the orders, or {@code null} for any
+     * @param from the earliest creation time in epoch seconds
+     * @param to the latest creation time in epoch seconds
+     * @return the stream of matching orders
+     */
+    @Query(ORDER_HISTORY + " ORDER BY o.id DESC")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<OrderDb> streamHistory(@Param("shopId") String shopId, @Param("afterId") Long afterId,
+                                  @Param("state") String state, @Param("from") Long from, @Param("to") Long to);
 }
@@ -32,15 +32,14 @@ public interface StateRepository extends JpaRepository<State, Long> {
     /**
      * Finds states with only 'New' state for a specific shop.
      *
-     * <p>This query selects states where the state is 'New' and the shop ID matches the provided parameter.
-     * It groups the results by order and filters to include only those orders with a single distinct state.</p>
+     * <p>This query selects states where the state is 'New' and the shop ID matches the provided parameter,
+     * skipping orders which already have any other state.</p>
      *
      * @param shopId the ID of the shop
      * @return an {@link Optional} containing a list of states with only 'New' state for the specified shop, or {@link Optional#empty()} if none found
      */
     @Query("SELECT s FROM State s " +
             "WHERE s.state = 'New' AND s.shop.shopId = :shopId " +
-            "GROUP BY s.order " +
-            "HAVING COUNT(DISTINCT s.state) = 1")
+            "AND NOT EXISTS (SELECT o FROM State o WHERE o.order = s.order AND o.state <> 'New')")
     Optional<List<State>> findStatesWithOnlyNewStateForShop(@Param("shopId") String shopId);
 }
@@ -1,29 +1,41 @@
 package com.orders.cabinet.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orders.cabinet.configuration.StatesProperties;
 import com.orders.cabinet.event.Timed;
 import com.orders.cabinet.exception.NoSuchShopException;
 import com.orders.cabinet.mapper.OrderMapper;
 import com.orders.cabinet.model.api.PriceList;
 import com.orders.cabinet.model.api.dto.OrderDTO;
+import com.orders.cabinet.model.api.dto.OrderPageDTO;
 import com.orders.cabinet.model.db.order.OrderDb;
 import com.orders.cabinet.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Comparator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Service for handling additional order-related operations.
  *
  * <p>This service provides asynchronous methods for fetching all orders for a shop
- * and for fetching orders by the last four symbols of their ID.</p>
+ * and for fetching orders by the last four symbols of their ID. The order history can also be read
+ * page by page or streamed, so the memory used doesn't grow with the history of the shop.</p>
  *
  * @author Vasylenko Oleksii
  * @company Proxima Research International
@@ -37,9 +49,18 @@ import java.util.concurrent.CompletableFuture;
 @EnableScheduling
 public class AdditionalService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     final OrderRepository orderRepository;
     final OrderMapper orderMapper;
     final CacheService cacheService;
+    final TransactionTemplate transactionTemplate;
+    final EntityManager entityManager;
+    final ObjectMapper objectMapper;
+    final StatesProperties statesProperties;
+
+    @Value("${pricelist.search.limit}")
+    int searchLimit;
 
     /**
      * Retrieves all orders for a given shop.
@@ -53,9 +74,75 @@ public class AdditionalService {
         return CompletableFuture.completedFuture(ordersByShop.stream().map(orderMapper::DBToDTO).toList());
     }
 
+    /**
+     * Retrieves a page of the order history of a given shop, from the newest order to the oldest.
+     *
+     * @param addressId the ID of the shop
+     * @param after the cursor returned with the previous page, or {@code null} for the first page
+     * @param size the maximum amount of orders on the page, up to {@value #MAX_PAGE_SIZE}
+     * @param state the current state of the orders, or {@code null} for any
+     * @param from the earliest creation time in epoch seconds, or {@code null}
+     * @param to the latest creation time in epoch seconds, or {@code null}
+     * @return a CompletableFuture containing the page
+     * @throws IllegalArgumentException if the size is out of range
+     */
+    @Async
+    public CompletableFuture<OrderPageDTO> getOrdersPage(String addressId, Long after, int size, String state, Long from, Long to) {
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Page size must be from 1 to " + MAX_PAGE_SIZE));
+
+        List<OrderDb> orders = orderRepository.findHistoryPage(addressId, after == null ? Long.MAX_VALUE : after, state,
+                from == null ? 0L : from, to == null ? Long.MAX_VALUE : to, Limit.of(size + 1));
+        boolean hasNext = orders.size() > size;
+        List<OrderDb> page = hasNext ? orders.subList(0, size) : orders;
+        return CompletableFuture.completedFuture(OrderPageDTO.builder()
+                .orders(page.stream().map(orderMapper::DBToDTO).toList())
+                .next(hasNext ? page.get(page.size() - 1).getId() : null)
+                .build());
+    }
+
+    /**
+     * Writes the order history of a given shop as a JSON array, from the newest order to the oldest.
+     *
+     * <p>Orders are read from the database in chunks and written one by one, and are detached right after
+     * they are written, so only one order at a time is kept in memory.</p>
+     *
+     * @param addressId the ID of the shop
+     * @param state the current state of the orders, or {@code null} for any
+     * @param from the earliest creation time in epoch seconds, or {@code null}
+     * @param to the latest creation time in epoch seconds, or {@code null}
+     * @param out the stream to write the orders to
+     * @throws IOException if writing fails
+     */
+    public void writeOrders(String addressId, String state, Long from, Long to, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<OrderDb> orders = orderRepository.streamHistory(addressId, Long.MAX_VALUE, state,
+                        from == null ? 0L : from, to == null ? Long.MAX_VALUE : to)) {
+                    orders.forEach(order -> {
+                        try {
+                            objectMapper.writeValue(generator, orderMapper.DBToDTO(order));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        entityManager.detach(order);
+                    });
+                }
+            });
+            generator.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
     /**
      * Retrieves orders for a given shop that end with the specified last four symbols.
      *
+     * <p>The whole history of the shop is searched with one query by the indexed reversed order ID, so only the
+     * matching orders are loaded. Active orders, neither completed nor canceled, are returned first, as these are
+     * the orders asked for at the counter.</p>
+     *
      * @param addressId the ID of the shop
      * @param last the last four symbols of the order IDs to match
      * @return a CompletableFuture containing a list of matching OrderDTOs
@@ -63,21 +150,31 @@ public class AdditionalService {
      */
     @Async
     public CompletableFuture<List<OrderDTO>> getOrderBy4LastSymbols(String addressId, String last) {
-        //get all orders
-        List<OrderDb> ordersByShop = orderRepository.findByShopId(addressId);
-        //get only orders which ends by last 4 symbols
-        List<OrderDb> possibleOrder = ordersByShop
-                .stream()
-                .filter(order -> order.getOrderId().endsWith(last))
-                .toList();
+        List<OrderDb> possibleOrder = orderRepository.findByShopIdAndReversedOrderIdLike(addressId,
+                toReversedPattern(last), List.of(statesProperties.getComlete(), statesProperties.getCancel()));
         if (!possibleOrder.isEmpty()) return CompletableFuture.completedFuture(possibleOrder.stream().map(orderMapper::DBToDTO).toList());
         else return CompletableFuture.failedFuture(new NoSuchShopException("No orders, which ends with '" + last + "' for shop '" + addressId + "'!"));
     }
 
+    /**
+     * Builds a {@code LIKE} pattern matching reversed order IDs that start with the reversed symbols.
+     *
+     * @param last the last symbols of the order ID
+     * @return the pattern
+     */
+    private static String toReversedPattern(String last) {
+        return new StringBuilder(last).reverse().toString()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + '%';
+    }
+
     /**
      * Retrieves drugs propositions for a given shop that starts with given symbols. In case if there are more than
      * one word, second will be found by containing.
      *
+     * <p>The search is answered from the {@link PriceListIndex} built when the price list was cached, and returns
+     * at most {@code pricelist.search.limit} items.</p>
      *
      * @param addressId the ID of the shop
      * @param name the symbols of the prep to match
@@ -89,21 +186,10 @@ public class AdditionalService {
     public CompletableFuture<List<PriceList>> getDrugByName(String addressId, String name) {
         if (name.trim().isEmpty()) throw new IllegalArgumentException("I need more symbols to find!");
 
-        List<PriceList> itemsInShop = cacheService.getCachedPriceList(addressId);
         String[] input = name.trim().toLowerCase().split("\\s+");
-
-        List<PriceList> filteredItems = itemsInShop.stream()
-                .filter(item -> {
-                    String drugNameLower = item.getDrugName().toLowerCase();
-                    return switch (input.length) {
-                        case 2 -> drugNameLower.startsWith(input[0]) && drugNameLower.contains(input[1]);
-                        case 3 ->
-                                drugNameLower.startsWith(input[0]) && drugNameLower.contains(input[1]) && drugNameLower.contains(input[2]);
-                        default -> drugNameLower.startsWith(input[0]);
-                    };
-                })
-                .sorted(Comparator.comparing(PriceList::getDrugName, String.CASE_INSENSITIVE_ORDER))
-                .toList();
+        List<PriceList> filteredItems = cacheService.searchPriceList(addressId, input, searchLimit);
+        if (filteredItems == null)
+            return CompletableFuture.failedFuture(new NoSuchShopException("No price list cached for shop '" + addressId + "'!"));
 
         return CompletableFuture.completedFuture(filteredItems);
     }
@@ -60,6 +60,7 @@ public class AdminService {
     ShopMapper shopMapper;
     PasswordEncoder encoder;
     RestTemplate restTemplate;
+    AuthCacheService authCache;
 
     /**
      * Saves a list of corporations.
@@ -145,6 +146,7 @@ public class AdminService {
             if (corpDto.getPassword() != null) corpRepository.updatePassword(corpId, corpDto.getPassword());
             if (corpDto.getCorpName() != null) corpRepository.updateCorpName(corpId, corpDto.getCorpName());
             if (corpDto.getLifeTime() != null) corpRepository.updateLifeTime(corpId, corpDto.getLifeTime());
+            if (corpDto.getLogin() != null || corpDto.getPassword() != null) authCache.invalidateAll();
             return CompletableFuture.completedFuture(corpDto.toString());
         } catch (Exception e) {
             return CompletableFuture.failedFuture(e);
@@ -162,6 +164,7 @@ public class AdminService {
     public CompletableFuture<String> editShopById(String shopId, String password) {
         try {
             shopRepository.updatePassword(shopId, encoder.encode(password));
+            authCache.invalidateUser(shopId);
             return CompletableFuture.completedFuture("OK");
         } catch (Exception e) {
             return CompletableFuture.failedFuture(e);
@@ -243,6 +246,7 @@ public class AdminService {
     public CompletableFuture<String> deleteShop (String shopId) {
         try {
             shopRepository.deleteById(shopId);
+            authCache.invalidateUser(shopId);
             return CompletableFuture.completedFuture("OK");
         } catch (Exception e) {
             return CompletableFuture.failedFuture(e);
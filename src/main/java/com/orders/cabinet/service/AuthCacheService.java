@@ -0,0 +1,173 @@
+package com.orders.cabinet.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.orders.cabinet.configuration.AuthCacheProperties;
+import com.orders.cabinet.model.db.Shops;
+import com.orders.cabinet.repository.ShopRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+/**
+ * Service for caching verified credentials and the logged-in status of shops.
+ *
+ * <p>Checking a password with BCrypt costs tens of milliseconds of CPU, and every API call carries
+ * Basic credentials. Once credentials are verified, they are remembered under a keyed hash for
+ * {@code auth.cache.ttl}, so following requests with the same credentials skip the database and BCrypt.
+ * The key is an HMAC with a secret generated at startup, so neither passwords nor reversible hashes
+ * are kept in memory.</p>
+ *
+ * <p>Entries of a user are dropped when the password of the shop changes, the shop is deleted or logs out.
+ * Hit rates are exposed as {@code cache.*} meters tagged {@code cache=authCredentials} and
+ * {@code cache=shopLogged}, the password checks as the {@code cabinet.auth.bcrypt} counter.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Slf4j
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AuthCacheService {
+
+    private static final String HMAC = "HmacSHA256";
+
+    UserService userService;
+    PasswordEncoder encoder;
+    ShopRepository shopRepository;
+    Counter passwordChecks;
+    SecretKeySpec secret;
+    Cache<String, UserDetails> credentials;
+    Cache<String, Boolean> loggedShops;
+
+    public AuthCacheService(UserService userService,
+                            PasswordEncoder encoder,
+                            ShopRepository shopRepository,
+                            AuthCacheProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.encoder = encoder;
+        this.shopRepository = shopRepository;
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.secret = new SecretKeySpec(key, HMAC);
+
+        this.credentials = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        this.loggedShops = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getLoggedTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, credentials, "authCredentials");
+        CaffeineCacheMetrics.monitor(meterRegistry, loggedShops, "shopLogged");
+        this.passwordChecks = Counter.builder("cabinet.auth.bcrypt")
+                .description("Passwords checked with the password encoder")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Verifies the credentials of a user.
+     *
+     * <p>Credentials verified before are answered from memory, others are checked against
+     * the stored password of the user.</p>
+     *
+     * @param username the username
+     * @param password the raw password
+     * @return the details of the user, without the password
+     * @throws BadCredentialsException if the user does not exist or the password does not match
+     */
+    public UserDetails authenticate(String username, String password) {
+        String key = key(username, password);
+        UserDetails verified = credentials.getIfPresent(key);
+        if (verified != null) return verified;
+
+        UserDetails userDetails;
+        try {
+            userDetails = userService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            throw new BadCredentialsException("Bad credentials", e);
+        }
+
+        passwordChecks.increment();
+        if (!encoder.matches(password, userDetails.getPassword())) throw new BadCredentialsException("Bad credentials");
+
+        verified = User.withUserDetails(userDetails).password("").build();
+        credentials.put(key, verified);
+        return verified;
+    }
+
+    /**
+     * Checks whether the shop is logged in.
+     *
+     * @param shopId the ID of the shop
+     * @return {@code true} if the shop exists and is logged in
+     */
+    public boolean isShopLogged(String shopId) {
+        return loggedShops.get(shopId, id -> shopRepository.getShopByShopId(id)
+                .map(Shops::isLogged)
+                .orElse(false));
+    }
+
+    /**
+     * Drops the verified credentials and the logged-in status of a user.
+     *
+     * @param username the username, which is the shop ID for shops
+     */
+    public void invalidateUser(String username) {
+        credentials.asMap().values().removeIf(user -> user.getUsername().equals(username));
+        loggedShops.invalidate(username);
+        log.info("Cached credentials of {} dropped", username);
+    }
+
+    /**
+     * Drops the logged-in status of a shop, so it's read from the database on the next request.
+     *
+     * @param shopId the ID of the shop
+     */
+    public void invalidateShop(String shopId) {
+        loggedShops.invalidate(shopId);
+    }
+
+    /**
+     * Drops all verified credentials.
+     */
+    public void invalidateAll() {
+        credentials.invalidateAll();
+        loggedShops.invalidateAll();
+        log.info("All cached credentials dropped");
+    }
+
+    private String key(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(secret);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) ':');
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " is not available", e);
+        }
+    }
+}
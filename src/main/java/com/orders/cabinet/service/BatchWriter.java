@@ -0,0 +1,240 @@
+package com.orders.cabinet.service;
+
+import com.orders.cabinet.configuration.AuditProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+/**
+ * Bounded buffer of records written in batches by a single thread.
+ *
+ * <p>Records wait in a buffer of {@code audit.buffer-capacity} records, unless another capacity is given.
+ * The writer thread passes them to the batch consumer once {@code audit.batch-size} records are collected
+ * or {@code audit.flush-interval} passed since the first one. Adding a record never blocks: if the buffer is full, the record is dropped. Records left
+ * in the buffer are written when the writer is closed, and records added after that are dropped.</p>
+ *
+ * <p>A batch the consumer failed on is retried once, and then written record by record, so a transient error
+ * doesn't lose the whole batch and a bad record loses only itself. The consumer must therefore leave nothing of
+ * a failed batch behind. A batch failed because the database is unavailable, a
+ * {@link DataAccessResourceFailureException} such as {@code CannotGetJdbcConnectionException}, is not written
+ * record by record: the writer retries the whole batch with a backoff growing from {@value #MIN_BACKOFF_MILLIS}
+ * to {@value #MAX_BACKOFF_MILLIS} ms until it is written or the writer is closed, while new records fill
+ * the buffer and are dropped once it is full.</p>
+ *
+ * <p>Buffer depth, dropped and written records and the time of writing a batch are exported as
+ * {@code <name>.buffer}, {@code <name>.dropped}, {@code <name>.written} and {@code <name>.flush}. Records the
+ * consumer failed on even alone are counted as dropped.</p>
+ *
+ * @param <T> the type of the records
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Slf4j
+public final class BatchWriter<T> {
+
+    /**
+     * Longest time to wait for the writer thread to write the remaining records on close.
+     */
+    private static final long SHUTDOWN_MILLIS = 10_000;
+
+    /**
+     * Shortest and longest time to wait before retrying a batch while the database is unavailable.
+     */
+    private static final long MIN_BACKOFF_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final String name;
+    private final int batchSize;
+    private final long interval;
+    private final Consumer<List<T>> consumer;
+    private final BlockingQueue<T> buffer;
+    private final Counter dropped;
+    private final Counter written;
+    private final Timer flush;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Creates the writer with a buffer of {@code audit.buffer-capacity} records and starts its thread.
+     *
+     * @param name the name of the writer, used for the thread and as the prefix of the metrics
+     * @param properties the buffer and batch settings
+     * @param meterRegistry the registry of the metrics
+     * @param consumer writes a batch of records
+     */
+    public BatchWriter(String name, AuditProperties properties, MeterRegistry meterRegistry, Consumer<List<T>> consumer) {
+        this(name, properties.getBufferCapacity(), properties, meterRegistry, consumer);
+    }
+
+    /**
+     * Creates the writer and starts its thread.
+     *
+     * @param name the name of the writer, used for the thread and as the prefix of the metrics
+     * @param bufferCapacity the maximum amount of records waiting to be written
+     * @param properties the batch settings
+     * @param meterRegistry the registry of the metrics
+     * @param consumer writes a batch of records
+     */
+    public BatchWriter(String name, int bufferCapacity, AuditProperties properties, MeterRegistry meterRegistry,
+                       Consumer<List<T>> consumer) {
+        this.name = name;
+        this.batchSize = properties.getBatchSize();
+        this.interval = properties.getFlushInterval().toNanos();
+        this.consumer = consumer;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        Gauge.builder(name + ".buffer", buffer, BlockingQueue::size).register(meterRegistry);
+        this.dropped = meterRegistry.counter(name + ".dropped");
+        this.written = meterRegistry.counter(name + ".written");
+        this.flush = Timer.builder(name + ".flush").register(meterRegistry);
+
+        writer = new Thread(this::drain, name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Adds a record to the buffer to be written with the next batch, without blocking.
+     *
+     * <p>The record is dropped if the buffer is full or the writer is closed.</p>
+     *
+     * @param record the record
+     */
+    public void offer(T record) {
+        if (!running || !buffer.offer(record)) {
+            dropped.increment();
+            return;
+        }
+        //closed meanwhile, the writer thread may have already stopped
+        if (!running && buffer.remove(record)) dropped.increment();
+    }
+
+    /**
+     * Stops the writer thread after it wrote the records left in the buffer.
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        writer.join(SHUTDOWN_MILLIS);
+        if (!buffer.isEmpty()) {
+            int left = buffer.size();
+            dropped.increment(left);
+            log.warn("{} records of {} were not written on close", left, name);
+        }
+    }
+
+    /**
+     * Collects records from the buffer into batches and writes them until stopped and the buffer is empty.
+     */
+    private void drain() {
+        List<T> batch = new ArrayList<>(batchSize);
+        boolean interrupted = false;
+        while (running || !buffer.isEmpty()) {
+            try {
+                T first = buffer.poll(interval, TimeUnit.NANOSECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + interval;
+                while (batch.size() < batchSize && running) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || left <= 0) break;
+                    T next = buffer.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                buffer.drainTo(batch, batchSize - batch.size());
+            } catch (InterruptedException e) {
+                interrupted = true;
+                running = false;
+            }
+            write(batch);
+            batch.clear();
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Writes a batch, retrying it once and then writing its records one by one,
+     * or retrying it with a backoff while the database is unavailable.
+     */
+    private void write(List<T> batch) {
+        if (batch.isEmpty()) return;
+        RuntimeException failure = tryWrite(batch, true);
+        if (failure == null) return;
+        if (isUnavailable(failure)) {
+            failure = retryWithBackoff(batch, failure);
+            if (failure == null) return;
+            if (isUnavailable(failure)) {
+                dropped.increment(batch.size());
+                log.error("Dropped {} records of {}, the database is unavailable", batch.size(), name);
+                return;
+            }
+        }
+        if (tryWrite(batch, true) == null) return;
+
+        int failed = batch.size();
+        if (batch.size() > 1) {
+            for (T record : batch) {
+                if (tryWrite(List.of(record), false) == null) failed--;
+            }
+        }
+        if (failed > 0) {
+            dropped.increment(failed);
+            log.error("Dropped {} of {} records of {}", failed, batch.size(), name);
+        }
+    }
+
+    /**
+     * Retries the batch while the database is unavailable and the writer is running.
+     *
+     * @return {@code null} if the batch was written, otherwise the last failure
+     */
+    private RuntimeException retryWithBackoff(List<T> batch, RuntimeException failure) {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (running && isUnavailable(failure)) {
+            log.warn("Database unavailable for {}, retrying {} records in {} ms", name, batch.size(), backoff);
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            failure = tryWrite(batch, false);
+            if (failure == null) log.info("Database available again for {}", name);
+        }
+        return failure;
+    }
+
+    private static boolean isUnavailable(RuntimeException e) {
+        return e instanceof DataAccessResourceFailureException;
+    }
+
+    /**
+     * @return {@code null} if the batch was written, otherwise the failure
+     */
+    private RuntimeException tryWrite(List<T> batch, boolean logFailure) {
+        try {
+            flush.record(() -> consumer.accept(batch));
+            written.increment(batch.size());
+            return null;
+        } catch (RuntimeException e) {
+            if (logFailure) log.error("Failed to write {} records of {}", batch.size(), name, e);
+            return e;
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.orders.cabinet.service;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Response body captured for a controller audit event.
+ *
+ * <p>The body is rendered to JSON right away on the request thread, so the event keeps only the rendered text
+ * instead of a reference to the response, which may be large and may still be used by the request. Capturing stays
+ * cheap: top level collections and arrays are cut to their first elements, and rendering stops as soon as the
+ * maximum amount of characters is reached, which also cuts nested collections, so large bodies are never rendered
+ * in full.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+public final class BodyCapture {
+
+    private final Object value;
+
+    private BodyCapture(Object value) {
+        this.value = value;
+    }
+
+    /**
+     * Captures a response body.
+     *
+     * <p>The body of a {@link ResponseEntity} is captured instead of the entity. Streamed bodies are captured
+     * only by their type.</p>
+     *
+     * @param mapper the mapper to render the body with
+     * @param body the body
+     * @param maxElements collections and arrays are cut to this amount of elements
+     * @param maxChars the rendered body is cut to this amount of characters
+     * @return the captured body, or {@code null} if the body is {@code null}
+     */
+    public static BodyCapture of(ObjectMapper mapper, Object body, int maxElements, int maxChars) {
+        if (body instanceof ResponseEntity<?> entity) body = entity.getBody();
+        if (body == null) return null;
+        if (body instanceof StreamingResponseBody || body instanceof ResponseBodyEmitter)
+            body = "<" + body.getClass().getSimpleName() + ">";
+        else if (body instanceof Collection<?> collection) body = head(collection, collection.size(), maxElements);
+        else if (body instanceof Object[] array) body = head(Arrays.asList(array), array.length, maxElements);
+        return new BodyCapture(render(mapper, body, maxChars));
+    }
+
+    private static Object head(Collection<?> collection, int size, int maxElements) {
+        if (size <= maxElements) return new ArrayList<>(collection);
+        List<Object> head = new ArrayList<>(maxElements);
+        Iterator<?> iterator = collection.iterator();
+        while (head.size() < maxElements && iterator.hasNext()) head.add(iterator.next());
+        Map<String, Object> cut = new LinkedHashMap<>();
+        cut.put("size", size);
+        cut.put("head", head);
+        return cut;
+    }
+
+    /**
+     * Returns the rendered body.
+     *
+     * @return the JSON of the body, or a string with its beginning if it is longer than the maximum
+     */
+    @JsonValue
+    public Object getValue() {
+        return value;
+    }
+
+    private static Object render(ObjectMapper mapper, Object body, int maxChars) {
+        LimitedWriter writer = new LimitedWriter(maxChars);
+        try {
+            mapper.writeValue(writer, body);
+            return new RawValue(writer.toString());
+        } catch (IOException e) {
+            if (writer.isFull()) return writer + "...";
+            String value = String.valueOf(body);
+            return value.length() > maxChars ? value.substring(0, maxChars) + "..." : value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return value instanceof RawValue raw ? String.valueOf(raw.rawValue()) : value.toString();
+    }
+
+    /**
+     * Writer keeping at most the given amount of characters and failing once more are written.
+     */
+    private static final class LimitedWriter extends Writer {
+
+        private final StringBuilder out = new StringBuilder();
+        private final int limit;
+        private boolean full;
+
+        LimitedWriter(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            int left = limit - out.length();
+            out.append(buffer, offset, Math.min(length, left));
+            if (length > left) {
+                full = true;
+                throw new IOException("Body is longer than " + limit + " characters");
+            }
+        }
+
+        boolean isFull() {
+            return full;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+    }
+}
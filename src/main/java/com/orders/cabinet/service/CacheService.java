@@ -2,46 +2,131 @@ package com.orders.cabinet.service;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.orders.cabinet.configuration.PriceListRefreshProperties;
 import com.orders.cabinet.event.Timed;
 import com.orders.cabinet.model.api.PriceList;
 import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryUsage;
+import java.util.BitSet;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class CacheService {
 
-    Cache<String, List<PriceList>> cache;
+    /**
+     * Smallest dictionary worth compacting, the initial capacity of a {@link DrugDictionary}.
+     */
+    private static final int MIN_COMPACT_ENTRIES = 1024;
 
-    public CacheService() {
+    Cache<String, PriceListIndex> cache;
+    long compactInterval;
+    @NonFinal
+    volatile DrugDictionary dictionary = new DrugDictionary();
+    @NonFinal
+    long compactCheckedAt = System.currentTimeMillis();
+
+    public CacheService(PriceListRefreshProperties properties) {
         this.cache = Caffeine.newBuilder()
-                .expireAfterWrite(30, TimeUnit.MINUTES)
+                .expireAfterWrite(properties.getWindow().plus(properties.getExpiryMargin().multipliedBy(2)))
                 .build();
+        this.compactInterval = properties.getWindow().toMillis();
     }
 
     public void cachePriceList(String shopId, List<PriceList> priceLists) {
-        cache.put(shopId, priceLists);
+        compactDictionary();
+        ColumnarPriceList columnar = ColumnarPriceList.of(priceLists, dictionary);
+        cache.put(shopId, PriceListIndex.build(columnar));
 
         MemoryUsage heapMemoryUsage = ManagementFactory
                 .getMemoryMXBean()
                 .getHeapMemoryUsage();
         long l = (heapMemoryUsage.getMax() - heapMemoryUsage.getUsed()) / (1024 * 1024);
-        log.info("Memory: {} MB", l);
+        log.info("Memory: {} MB; shop {}: {} items take ~{} KB instead of ~{} KB as objects; dictionary: {} drugs",
+                l, shopId, columnar.size(), columnar.estimateSize() / 1024,
+                ColumnarPriceList.estimateObjectSize(priceLists) / 1024, dictionary.size());
     }
 
     @Timed
     public List<PriceList> getCachedPriceList(String shopId) {
+        PriceListIndex index = cache.getIfPresent(shopId);
+        return index == null ? null : index.getItems();
+    }
+
+    /**
+     * Returns the cached price list of the shop with its search index.
+     *
+     * @param shopId the ID of the shop
+     * @return the index, or {@code null} if the price list of the shop isn't cached
+     */
+    public PriceListIndex getPriceListIndex(String shopId) {
         return cache.getIfPresent(shopId);
     }
+
+    /**
+     * Replaces the cached price list of the shop with an already built index, e.g. after a delta refresh.
+     *
+     * @param shopId the ID of the shop
+     * @param index the index to cache
+     */
+    public void putPriceListIndex(String shopId, PriceListIndex index) {
+        cache.put(shopId, index);
+    }
+
+    /**
+     * Replaces the drug dictionary with a new one if most of its entries are not used by any cached price list.
+     *
+     * <p>Checked before a price list is rebuilt, at most once per refresh window, so the rebuilt list already goes
+     * into the new dictionary. The old dictionary is retired, so the other price lists built on it are rebuilt into
+     * the new one on their next refresh.</p>
+     */
+    private synchronized void compactDictionary() {
+        long now = System.currentTimeMillis();
+        if (now - compactCheckedAt < compactInterval) return;
+        compactCheckedAt = now;
+
+        DrugDictionary current = dictionary;
+        int entries = current.entries();
+        if (entries < MIN_COMPACT_ENTRIES) return;
+        BitSet used = new BitSet(entries);
+        for (PriceListIndex index : cache.asMap().values()) {
+            if (index.getPriceList().getDictionary() == current) index.getPriceList().collectDrugs(used);
+        }
+        if (used.cardinality() * 2 >= entries) return;
+
+        dictionary = new DrugDictionary();
+        current.retire();
+        log.info("Drug dictionary compacted: {} of {} entries used, price lists move to a new one on their next refresh",
+                used.cardinality(), entries);
+    }
+
+    /**
+     * Returns the drug dictionary shared by all cached price lists.
+     *
+     * @return the drug dictionary
+     */
+    public DrugDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Searches the cached price list of the shop by drug name.
+     *
+     * @param shopId the ID of the shop
+     * @param query the lower-cased query words, see {@link PriceListIndex#search(String[], int)}
+     * @param limit the maximum amount of items to return
+     * @return the matching items, or {@code null} if the price list of the shop isn't cached
+     */
+    public List<PriceList> searchPriceList(String shopId, String[] query, int limit) {
+        PriceListIndex index = cache.getIfPresent(shopId);
+        return index == null ? null : index.search(query, limit);
+    }
 }
 
@@ -1,16 +1,15 @@
 package com.orders.cabinet.service;
 
+import com.orders.cabinet.configuration.CleanUpProperties;
 import com.orders.cabinet.configuration.StatesProperties;
 import com.orders.cabinet.mapper.ShopInfoCachRepositoryMapper;
 import com.orders.cabinet.model.db.ShopInfoCache;
 import com.orders.cabinet.model.db.Shops;
 import com.orders.cabinet.model.db.dto.ShopInfoCacheDTO;
-import com.orders.cabinet.model.db.order.OrderDb;
-import com.orders.cabinet.repository.CorpRepository;
 import com.orders.cabinet.repository.OrderRepository;
 import com.orders.cabinet.repository.ShopInfoCacheRepository;
 import com.orders.cabinet.repository.ShopRepository;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -18,13 +17,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 /**
  * Service for performing periodic cleanup tasks.
  *
@@ -43,77 +42,78 @@ import java.util.stream.Collectors;
 public class CleanUpService {
     OrderRepository orderRepository;
     StatesProperties statesProperties;
-    CorpRepository corpRepository;
+    CleanUpProperties cleanUpProperties;
     ShopInfoCacheRepository shopInfoCacheRepository;
     AdminService adminService;
+    TransactionTemplate transactionTemplate;
+    MeterRegistry meterRegistry;
 
     /**
      * Cleans up orders based on their states and lifetimes.
      *
      * <p>This method is scheduled to run daily at 00:01. It deletes orders with specific states (complete or canceled)
      * and also removes expired orders based on their lifetimes. Additionally, it updates the shop information cache.</p>
+     *
+     * <p>Orders are deleted in the database with bulk statements of {@code cleanup.chunk-size} orders, each in its
+     * own transaction, so no order is loaded and locks are held only for one chunk. Amounts of deleted orders are
+     * reported as {@code cabinet.cleanup.deleted} by the state they had.</p>
+     *
+     * <p>Most orders are deleted earlier by {@link #expireOrders()}; this run also covers orders without an expiry
+     * time and orders whose corporation lifetime changed.</p>
      */
     //@Scheduled(cron = "0 */1 * * * *")// Testing feature each 1 minutes
     @Scheduled(cron = "0 1 0 * * *") // Runs every day at 00:01
-    @Transactional
     public void cleanupOrders() {
-        List<OrderDb> allOrders = orderRepository.findAllOrders();
+        long start = System.nanoTime();
+        List<String> finished = List.of(statesProperties.getComlete(), statesProperties.getCancel());
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime newDeadline = now.minus(cleanUpProperties.getNewOrderLifetime());
+        int chunkSize = cleanUpProperties.getChunkSize();
 
-        List<OrderDb> ordersToDelete = allOrders.stream()
-                .filter(order -> order
-                        .getStates()
-                        .stream()
-                        .anyMatch(state -> statesProperties.getComlete().equals(state.getState()) || statesProperties.getCancel().equals(state.getState())))
-                .toList();
-
-        if (!ordersToDelete.isEmpty()) {
-            orderRepository.deleteAll(ordersToDelete);
-            allOrders.removeAll(ordersToDelete);
-            log.info("Deleted orders:\n{}", ordersToDelete.stream()
-                    .map(OrderDb::getOrderId)
-                    .collect(Collectors.joining("\n")));
-        }
-
-        List<OrderDb> expiredOrders = new ArrayList<>();
-        for (OrderDb order: allOrders) {
-            if (order.getStates().get(order.getStates().size() - 1).getState().equals(statesProperties.getConfirm())) {
-                Integer lifetime = corpRepository
-                        .findLifetimeByOrderIdAndShopId(order.getOrderId(), order.getShop().getShopId());
-                log.info(lifetime.toString());
+        Map<String, Integer> deleted = new HashMap<>();
+        long afterId = 0L;
+        List<Object[]> chunk;
+        do {
+            long chunkAfterId = afterId;
+            chunk = transactionTemplate.execute(status -> orderRepository.deleteFinishedAndExpired(chunkAfterId,
+                    finished, statesProperties.getConfirm(), statesProperties.getNeww(), now, newDeadline, chunkSize));
+            for (Object[] row : chunk) {
+                afterId = Math.max(afterId, ((Number) row[0]).longValue());
+                deleted.merge((String) row[3], 1, Integer::sum);
+            }
+        } while (chunk.size() == chunkSize);
 
-                LocalDateTime localDateTimeFromLastStateWithLifetime = order.getStates()
-                        .get(order.getStates().size() - 1)
-                        .getTime()
-                        .toInstant()
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalDateTime()
-                        .plusHours(lifetime);
+        deleted.forEach((state, count) ->
+                meterRegistry.counter("cabinet.cleanup.deleted", "state", state).increment(count));
+        long nanos = System.nanoTime() - start;
+        meterRegistry.timer("cabinet.cleanup").record(nanos, TimeUnit.NANOSECONDS);
+        log.info("Deleted orders by state {} in {} ms", deleted, TimeUnit.NANOSECONDS.toMillis(nanos));
 
-                LocalDateTime now = LocalDateTime.now();
-                if (localDateTimeFromLastStateWithLifetime.isAfter(now)) expiredOrders.add(order);
-            }
+        updateShopInfoCache();
+    }
 
-            if (order.getStates().get(order.getStates().size() - 1).getState().equals(statesProperties.getNeww())) {
-                LocalDateTime localDateTimeFromLastStateWithLifetime = order.getStates()
-                        .get(order.getStates().size() - 1)
-                        .getTime()
-                        .toInstant()
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalDateTime()
-                        .plusMinutes(40L);
+    /**
+     * Deletes orders past their expiry time.
+     *
+     * <p>This method runs every {@code cleanup.expiry-delay} and deletes orders whose {@code expires_at} passed,
+     * in chunks of {@code cleanup.chunk-size} orders, each in its own transaction. So stale new and confirmed
+     * orders are removed close to their deadline instead of staying until the nightly cleanup. Amounts of
+     * expired orders are reported as {@code cabinet.cleanup.expired}.</p>
+     */
+    @Scheduled(fixedDelayString = "${cleanup.expiry-delay}")
+    public void expireOrders() {
+        LocalDateTime now = LocalDateTime.now();
+        int chunkSize = cleanUpProperties.getChunkSize();
 
-                LocalDateTime now = LocalDateTime.now();
-                if (localDateTimeFromLastStateWithLifetime.isAfter(now)) expiredOrders.add(order);
-            }
-        }
-        if (!expiredOrders.isEmpty()) {
-            orderRepository.deleteAll(expiredOrders);
-            log.info("Deleted expired orders:\n{}", ordersToDelete.stream()
-                    .map(OrderDb::getOrderId)
-                    .collect(Collectors.joining("\n")));
-        }
+        int expired = 0;
+        List<Object[]> chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> orderRepository.deleteExpired(now, chunkSize));
+            expired += chunk.size();
+        } while (chunk.size() == chunkSize);
 
-        updateShopInfoCache();
+        meterRegistry.counter("cabinet.cleanup.expired").increment(expired);
+        if (expired > 0) log.info("Expired {} orders", expired);
     }
 
     /**
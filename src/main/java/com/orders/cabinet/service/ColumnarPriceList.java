@@ -0,0 +1,288 @@
+package com.orders.cabinet.service;
+
+import com.orders.cabinet.model.api.PriceList;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compact representation of the price list of one shop.
+ *
+ * <p>Instead of one {@link PriceList} object per item with its own strings, every column is stored
+ * in a primitive array: the drug as an index into the shared {@link DrugDictionary}, price and quantity
+ * as doubles and the pack factor as an int. {@link PriceList} objects are materialized only for the rows
+ * actually returned to the client. Prices and quantities which are not numbers are kept as they were received,
+ * in a map by row, so they are returned unchanged.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+public final class ColumnarPriceList {
+
+    /**
+     * Marks a missing pack factor.
+     */
+    private static final int NO_PFACTOR = Integer.MIN_VALUE;
+
+    private final DrugDictionary dictionary;
+    private final int[] drugs;
+    private final double[] prices;
+    private final double[] quants;
+    private final int[] pfactors;
+    private final Map<Integer, String> rawPrices;
+    private final Map<Integer, String> rawQuants;
+
+    private ColumnarPriceList(DrugDictionary dictionary, int[] drugs, double[] prices, double[] quants, int[] pfactors,
+                              Map<Integer, String> rawPrices, Map<Integer, String> rawQuants) {
+        this.dictionary = dictionary;
+        this.drugs = drugs;
+        this.prices = prices;
+        this.quants = quants;
+        this.pfactors = pfactors;
+        this.rawPrices = rawPrices;
+        this.rawQuants = rawQuants;
+    }
+
+    /**
+     * Converts the price list into the columnar form, interning its drugs in the dictionary.
+     *
+     * @param priceList the items of the shop
+     * @param dictionary the shared drug dictionary
+     * @return the columnar price list
+     */
+    public static ColumnarPriceList of(List<PriceList> priceList, DrugDictionary dictionary) {
+        int size = priceList.size();
+        int[] drugs = new int[size];
+        double[] prices = new double[size];
+        double[] quants = new double[size];
+        int[] pfactors = new int[size];
+        Map<Integer, String> rawPrices = new HashMap<>();
+        Map<Integer, String> rawQuants = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            PriceList item = priceList.get(row);
+            drugs[row] = dictionary.intern(item.getDrugId(), item.getDrugName(), item.getDrugLink());
+            prices[row] = parse(item.getPrice());
+            quants[row] = parse(item.getQuant());
+            pfactors[row] = item.getPfactor() == null ? NO_PFACTOR : item.getPfactor();
+            keepRaw(rawPrices, row, prices[row], item.getPrice());
+            keepRaw(rawQuants, row, quants[row], item.getQuant());
+        }
+        return new ColumnarPriceList(dictionary, drugs, prices, quants, pfactors, rawPrices, rawQuants);
+    }
+
+    /**
+     * Returns the amount of items.
+     *
+     * @return the amount of items
+     */
+    public int size() {
+        return drugs.length;
+    }
+
+    /**
+     * Returns the drug of the row.
+     *
+     * @param row the row
+     * @return the drug from the shared dictionary
+     */
+    public DrugDictionary.Drug getDrug(int row) {
+        return dictionary.get(drugs[row]);
+    }
+
+    /**
+     * Returns the dictionary the drugs of this list are stored in.
+     *
+     * @return the drug dictionary
+     */
+    public DrugDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Marks the dictionary indexes of the drugs of this list.
+     *
+     * @param used the indexes in use, updated in place
+     */
+    public void collectDrugs(BitSet used) {
+        for (int drug : drugs) used.set(drug);
+    }
+
+    /**
+     * Materializes one row.
+     *
+     * @param row the row
+     * @return a new {@link PriceList} with the values of the row
+     */
+    public PriceList toPriceList(int row) {
+        DrugDictionary.Drug drug = getDrug(row);
+        return PriceList.builder()
+                .drugId(drug.getDrugId())
+                .drugName(drug.getDrugName())
+                .drugLink(drug.getDrugLink())
+                .price(format(prices[row], rawPrices.get(row)))
+                .quant(format(quants[row], rawQuants.get(row)))
+                .pfactor(pfactors[row] == NO_PFACTOR ? null : pfactors[row])
+                .build();
+    }
+
+    /**
+     * Compares a freshly fetched price list of the same shop with this one by drug ID.
+     *
+     * <p>If both lists stock the same drugs, the result carries a copy of this list with the new
+     * price, quantity and pack factor values; the drug column is shared, so a search index built over
+     * this list stays valid for it. If drugs were added or removed, or a drug of this list was renamed in
+     * the dictionary since or the dictionary was retired, the list has to be rebuilt and the result carries only the counts and the reason.
+     * Rows are not inserted or deleted in place: the drug column is what the search index is built over, so the
+     * index would have to be rebuilt anyway.</p>
+     *
+     * @param fresh the freshly fetched items
+     * @return the counts of changed, added and removed rows and the updated list if it could be patched
+     */
+    public Delta diff(List<PriceList> fresh) {
+        Map<String, PriceList> freshById = new HashMap<>(fresh.size() * 4 / 3 + 1);
+        for (PriceList item : fresh) freshById.put(item.getDrugId(), item);
+
+        double[] newPrices = prices;
+        double[] newQuants = quants;
+        int[] newPfactors = pfactors;
+        Map<Integer, String> newRawPrices = rawPrices;
+        Map<Integer, String> newRawQuants = rawQuants;
+        int changed = 0;
+        int removed = 0;
+        boolean renamed = false;
+        for (int row = 0; row < drugs.length; row++) {
+            if (!dictionary.isCurrent(drugs[row])) renamed = true;
+            PriceList item = freshById.get(getDrug(row).getDrugId());
+            if (item == null) {
+                removed++;
+                continue;
+            }
+            double price = parse(item.getPrice());
+            double quant = parse(item.getQuant());
+            int pfactor = item.getPfactor() == null ? NO_PFACTOR : item.getPfactor();
+            if (Double.compare(price, prices[row]) == 0 && Double.compare(quant, quants[row]) == 0 && pfactor == pfactors[row]
+                    && Objects.equals(rawPrices.get(row), Double.isNaN(price) ? item.getPrice() : null)
+                    && Objects.equals(rawQuants.get(row), Double.isNaN(quant) ? item.getQuant() : null)) continue;
+
+            if (changed++ == 0) {
+                newPrices = prices.clone();
+                newQuants = quants.clone();
+                newPfactors = pfactors.clone();
+                newRawPrices = new HashMap<>(rawPrices);
+                newRawQuants = new HashMap<>(rawQuants);
+            }
+            newPrices[row] = price;
+            newQuants[row] = quant;
+            newPfactors[row] = pfactor;
+            newRawPrices.remove(row);
+            newRawQuants.remove(row);
+            keepRaw(newRawPrices, row, price, item.getPrice());
+            keepRaw(newRawQuants, row, quant, item.getQuant());
+        }
+        int added = freshById.size() - (drugs.length - removed);
+        boolean sameDrugs = !renamed && removed == 0 && added == 0 && fresh.size() == drugs.length;
+
+        ColumnarPriceList patched = !sameDrugs ? null
+                : changed == 0 ? this
+                : new ColumnarPriceList(dictionary, drugs, newPrices, newQuants, newPfactors, newRawPrices, newRawQuants);
+        String rebuild = sameDrugs ? null
+                : dictionary.isRetired() ? Delta.COMPACTED
+                : renamed ? Delta.RENAMED
+                : removed > 0 && added > 0 ? Delta.REPLACED
+                : removed > 0 ? Delta.REMOVED
+                : Delta.ADDED;
+        return new Delta(changed, added, removed, patched, rebuild);
+    }
+
+    /**
+     * Estimates the heap taken by this price list, not counting the shared dictionary.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateSize() {
+        return 16L * 5 + 48 + (long) drugs.length * (4 + 8 + 8 + 4)
+                + 64L * (rawPrices.size() + rawQuants.size());
+    }
+
+    /**
+     * Estimates the heap the same items would take as a list of {@link PriceList} objects
+     * with their own strings, as they were cached before.
+     *
+     * @param priceList the items of the shop
+     * @return the estimated size in bytes
+     */
+    public static long estimateObjectSize(List<PriceList> priceList) {
+        long size = 16L + 4L * priceList.size();
+        for (PriceList item : priceList) {
+            size += 48 + estimateStringSize(item.getDrugId()) + estimateStringSize(item.getDrugName())
+                    + estimateStringSize(item.getDrugLink()) + estimateStringSize(item.getQuant())
+                    + estimateStringSize(item.getPrice()) + (item.getPfactor() == null ? 0 : 16);
+        }
+        return size;
+    }
+
+    /**
+     * Result of {@link #diff(List)}.
+     */
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static final class Delta {
+        public static final String ADDED = "added";
+        public static final String REMOVED = "removed";
+        public static final String REPLACED = "replaced";
+        public static final String RENAMED = "renamed";
+        public static final String COMPACTED = "compacted";
+
+        int changed;
+        int added;
+        int removed;
+        /**
+         * The updated list, or {@code null} if drugs were added, removed or renamed and the list has to be rebuilt.
+         */
+        ColumnarPriceList patched;
+        /**
+         * Why the list has to be rebuilt: {@link #ADDED}, {@link #REMOVED} or {@link #REPLACED} drugs,
+         * {@link #RENAMED} if a drug was renamed, or {@link #COMPACTED} if its dictionary was retired;
+         * {@code null} if it was patched.
+         */
+        String rebuild;
+    }
+
+    private static long estimateStringSize(String value) {
+        return value == null ? 0 : 40L + 2L * value.length();
+    }
+
+    private static double parse(String value) {
+        if (value == null || value.isBlank()) return Double.NaN;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Keeps the received value of a cell which is not a number.
+     */
+    private static void keepRaw(Map<Integer, String> raw, int row, double parsed, String value) {
+        if (Double.isNaN(parsed) && value != null) raw.put(row, value);
+    }
+
+    private static String format(double value, String raw) {
+        if (Double.isNaN(value)) return raw;
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        if (Math.abs(value) >= 1e-3 && Math.abs(value) < 1e7) return Double.toString(value);
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
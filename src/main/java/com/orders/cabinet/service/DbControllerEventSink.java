@@ -0,0 +1,70 @@
+package com.orders.cabinet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orders.cabinet.configuration.AuditProperties;
+import com.orders.cabinet.event.ControllerEventSink;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+/**
+ * Sink writing controller audit events to the {@code log_controllers} table.
+ *
+ * <p>Events are collected by a {@link BatchWriter} with the {@code audit.*} batch settings and a buffer of
+ * {@code audit.controller.buffer-capacity} events, serialized to JSON by its thread and inserted with one batched statement per batch. Metrics are exported as
+ * {@code cabinet.audit.controller.*}. This is the default sink, {@code audit.controller.sink=db}.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Service
+@ConditionalOnProperty(name = "audit.controller.sink", havingValue = "db", matchIfMissing = true)
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DbControllerEventSink implements ControllerEventSink {
+
+    private static final String INSERT = "INSERT INTO log_controllers (controller_event) VALUES (?)";
+
+    final JdbcTemplate jdbcTemplate;
+    final ObjectMapper mapper;
+    final AuditProperties properties;
+    final MeterRegistry meterRegistry;
+
+    BatchWriter<Map<String, Object>> writer;
+
+    @PostConstruct
+    public void init() {
+        writer = new BatchWriter<>("cabinet.audit.controller",
+                properties.getController().getBufferCapacity(), properties, meterRegistry, this::write);
+    }
+
+    /**
+     * Stops the writer after it wrote the events left in the buffer.
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        writer.close();
+    }
+
+    @Override
+    public void publish(Map<String, Object> event) {
+        writer.offer(event);
+    }
+
+    private void write(List<Map<String, Object>> batch) {
+        List<Object[]> args = batch.stream()
+                .map(event -> new Object[]{ControllerEventSink.toJson(mapper, event)})
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT, args);
+    }
+}
@@ -0,0 +1,150 @@
+package com.orders.cabinet.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Dictionary of drugs shared by the cached price lists of all shops.
+ *
+ * <p>Every drug stocked by any shop is stored once, with its name, link and lower-cased name,
+ * and price lists refer to it by an int index. Entries are immutable, so the lower-cased names a search
+ * index was built from always match the entries it returns. A drug whose name or link changed is interned
+ * under a new index; the old entry is kept for the price lists still referring to it, which are
+ * rebuilt on their next refresh as their index is no longer {@link #isCurrent(int) current}.</p>
+ *
+ * <p>Entries are never removed, so a dictionary only grows with renamed drugs and drugs no shop stocks any more.
+ * It is compacted by replacing it: {@link CacheService} starts a new dictionary and {@link #retire() retires}
+ * this one, after which none of its indexes are current, so every price list built on it is rebuilt into the
+ * new one on its next refresh and this one is collected with the last of them.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+public final class DrugDictionary {
+
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+    private volatile AtomicReferenceArray<Drug> drugs = new AtomicReferenceArray<>(1024);
+    private int size;
+    private volatile boolean retired;
+
+    /**
+     * Returns the index of the drug, adding a new entry if the drug is new or its name or link changed.
+     *
+     * @param drugId the ID of the drug
+     * @param drugName the name of the drug
+     * @param drugLink the link of the drug
+     * @return the index of the drug
+     */
+    public synchronized int intern(String drugId, String drugName, String drugLink) {
+        Integer index = indexes.get(drugId);
+        if (index != null) {
+            Drug drug = drugs.get(index);
+            if (Objects.equals(drug.getDrugName(), drugName) && Objects.equals(drug.getDrugLink(), drugLink)) {
+                return index;
+            }
+        }
+
+        if (size == drugs.length()) {
+            AtomicReferenceArray<Drug> grown = new AtomicReferenceArray<>(size * 2);
+            for (int i = 0; i < size; i++) grown.set(i, drugs.get(i));
+            drugs = grown;
+        }
+        drugs.set(size, newDrug(drugId, drugName, drugLink));
+        indexes.put(drugId, size);
+        return size++;
+    }
+
+    /**
+     * Returns the drug stored under the index.
+     *
+     * @param index the index returned by {@link #intern(String, String, String)}
+     * @return the drug
+     */
+    public Drug get(int index) {
+        return drugs.get(index);
+    }
+
+    /**
+     * Tells whether the index holds the latest entry of its drug.
+     *
+     * @param index the index returned by {@link #intern(String, String, String)}
+     * @return {@code false} if the drug was interned again under another index after its name or link changed,
+     *         or if the dictionary was retired
+     */
+    public boolean isCurrent(int index) {
+        if (retired) return false;
+        Integer current = indexes.get(drugs.get(index).getDrugId());
+        return current != null && current == index;
+    }
+
+    /**
+     * Finds the drug by its ID.
+     *
+     * @param drugId the ID of the drug
+     * @return the drug, or {@code null} if it was never interned
+     */
+    public Drug find(String drugId) {
+        Integer index = indexes.get(drugId);
+        return index == null ? null : drugs.get(index);
+    }
+
+    /**
+     * Returns the amount of drugs in the dictionary.
+     *
+     * @return the amount of drugs
+     */
+    public int size() {
+        return indexes.size();
+    }
+
+    /**
+     * Returns the amount of entries, including the old entries of renamed drugs.
+     *
+     * @return the amount of entries
+     */
+    public synchronized int entries() {
+        return size;
+    }
+
+    /**
+     * Marks the dictionary as replaced by a new one, so price lists built on it are rebuilt.
+     */
+    public void retire() {
+        retired = true;
+    }
+
+    /**
+     * Tells whether the dictionary was replaced by a new one.
+     *
+     * @return {@code true} if the dictionary was retired
+     */
+    public boolean isRetired() {
+        return retired;
+    }
+
+    private static Drug newDrug(String drugId, String drugName, String drugLink) {
+        return new Drug(drugId, drugName, drugLink, Objects.toString(drugName, "").toLowerCase());
+    }
+
+    /**
+     * One drug of the dictionary.
+     */
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static final class Drug {
+        String drugId;
+        String drugName;
+        String drugLink;
+        String lowerName;
+    }
+}
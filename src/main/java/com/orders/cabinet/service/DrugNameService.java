@@ -1,19 +1,29 @@
 package com.orders.cabinet.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.orders.cabinet.configuration.DrugCacheProperties;
+import com.orders.cabinet.configuration.OutboundExecutor;
 import com.orders.cabinet.model.api.DrugInfo;
 import com.orders.cabinet.model.db.DrugCache;
 import com.orders.cabinet.repository.DrugCacheRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.ListUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
@@ -25,6 +35,11 @@ import java.util.concurrent.CompletableFuture;
  * <p>This service provides methods to fetch drug information either from a cache or an external API and updates
  * the cache accordingly.</p>
  *
+ * <p>A bounded in-process cache sits in front of the {@code drug_cache} table. It also remembers IDs unknown
+ * to Geoapteka for a shorter time, is filled from the table at startup, and reports its statistics
+ * as {@code cache.*} meters tagged {@code cache=drugNames}. Failed calls to Geoapteka, whether the connection
+ * failed or the API answered with an error, are not remembered, so the IDs are asked for again next time.</p>
+ *
  * @author Vasylenko Oleksii
  * @company Proxima Research International
  * @version 1.0
@@ -36,64 +51,188 @@ import java.util.concurrent.CompletableFuture;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class DrugNameService {
 
+    private static final int QUERY_CHUNK = 1000;
+
     final DrugCacheRepository drugCacheRepository;
     final RestTemplate restTemplate;
+    final OutboundExecutor outbound;
+    final DrugCacheProperties properties;
+    final MeterRegistry meterRegistry;
 
     @Value("${geoapteka.api.url}")
     String apiUrl;
 
+    Cache<String, Optional<DrugCache>> drugs;
+
+    @PostConstruct
+    public void init() {
+        drugs = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new Expiry<String, Optional<DrugCache>>() {
+                    @Override
+                    public long expireAfterCreate(String drugId, Optional<DrugCache> drug, long currentTime) {
+                        return (drug.isPresent()
+                                ? properties.getExpireAfterWrite()
+                                : properties.getNegativeExpireAfterWrite()).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String drugId, Optional<DrugCache> drug, long currentTime, long currentDuration) {
+                        return expireAfterCreate(drugId, drug, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String drugId, Optional<DrugCache> drug, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, drugs, "drugNames");
+
+        if (Boolean.TRUE.equals(properties.getWarmUp())) {
+            outbound.runAsync(OutboundExecutor.GEOAPTEKA, this::warmUp)
+                    .exceptionally(ex -> {
+                        log.error("Drug name cache warm up failed", ex);
+                        return null;
+                    });
+        }
+    }
+
+    /**
+     * Loads drugs from the {@code drug_cache} table into memory, up to the cache size.
+     */
+    private void warmUp() {
+        List<String> ids = drugCacheRepository.findAllDrugIds();
+        List<String> toLoad = ids.subList(0, (int) Math.min(ids.size(), properties.getMaximumSize()));
+        for (List<String> chunk : ListUtils.partition(toLoad, QUERY_CHUNK)) {
+            drugCacheRepository.findAllByDrugIdIn(chunk).forEach(this::remember);
+        }
+        log.info("Drug name cache warmed up with {} of {} drugs", toLoad.size(), ids.size());
+    }
+
+    /**
+     * Puts a stored drug into the in-process cache.
+     *
+     * @param drug the drug from the {@code drug_cache} table
+     */
+    private void remember(DrugCache drug) {
+        drugs.put(drug.getDrugId(), Optional.of(drug));
+    }
+
     /**
      * Retrieves the drug information based on the given drug ID.
      *
      * <p>This method checks if the drug information is available in the cache. If not, it fetches the information
-     * from a https://api.geoapteka.com.ua/get_item and updates the cache with the retrieved data.</p>
+     * from a https://api.geoapteka.com.ua/get_item and updates the cache with the retrieved data. The remote call
+     * runs on the {@link OutboundExecutor}.</p>
      *
      * @param drugId The ID of the drug to retrieve information for.
      * @return A {@link CompletableFuture} containing the {@link DrugCache} entry with the drug information, or null
-     *         if the drug information could not be retrieved.
+     *         if the drug is unknown or the drug information could not be retrieved.
      */
-    @Async("taskExecutor")
     public CompletableFuture<DrugCache> getDrugName(String drugId) {
-        DrugCache newCacheEntry = null;
+        Optional<DrugCache> known = drugs.getIfPresent(drugId);
+        if (known != null) return CompletableFuture.completedFuture(known.orElse(null));
+
         Optional<DrugCache> cachedDrug = drugCacheRepository.findById(drugId);
         if (cachedDrug.isPresent()) {
+            remember(cachedDrug.get());
             return CompletableFuture.completedFuture(cachedDrug.get());
         } else {
-            String url = new StringBuilder().append(apiUrl).append("/get_item/").append(drugId).toString();
-            DrugInfo drugInfo = restTemplate.getForObject(url, DrugInfo.class);
-            if (drugInfo != null) {
-                newCacheEntry = getdrugCache(drugInfo);
-                drugCacheRepository.save(newCacheEntry);
-            }
-            return CompletableFuture.completedFuture(newCacheEntry);
+            return outbound.supplyAsync(OutboundExecutor.GEOAPTEKA, () -> {
+                DrugCache newCacheEntry = null;
+                String url = new StringBuilder().append(apiUrl).append("/get_item/").append(drugId).toString();
+                DrugInfo drugInfo;
+                try {
+                    drugInfo = outbound.call(OutboundExecutor.GEOAPTEKA, () -> restTemplate.getForObject(url, DrugInfo.class));
+                } catch (HttpClientErrorException.NotFound ex) {
+                    drugInfo = null;
+                } catch (RestClientException ex) {
+                    log.error("Failed to get drug {} from the API", drugId, ex);
+                    return null;
+                }
+                if (drugInfo != null) {
+                    newCacheEntry = getdrugCache(drugInfo);
+                    drugCacheRepository.save(newCacheEntry);
+                }
+                drugs.put(drugId, Optional.ofNullable(newCacheEntry));
+                return newCacheEntry;
+            });
         }
     }
 
-    @Async("taskExecutor")
-    public void setDrugNames(List<String> drugsId) {
-        List<DrugCache> result = new ArrayList<>();
-        List<String> baseList = drugCacheRepository.findAllDrugIds();
-        log.info("BaseList size: {}", baseList.size());
+    /**
+     * Fetches names of the drugs missing in the cache table and stores them.
+     *
+     * @param drugsId the IDs of the drugs to check.
+     * @return a {@link CompletableFuture} completed when the missing names are stored.
+     */
+    public CompletableFuture<Void> setDrugNames(List<String> drugsId) {
+        return outbound.runAsync(OutboundExecutor.GEOAPTEKA, () -> resolveAll(drugsId));
+    }
 
-        Set<String> baseSet = Set.copyOf(baseList);
+    /**
+     * Resolves the drugs with the given IDs in bulk.
+     *
+     * <p>IDs missing in memory are read from the {@code drug_cache} table with one query per
+     * {@value #QUERY_CHUNK} IDs, the rest are fetched from Geoapteka with a single {@code /get_item_many}
+     * call and stored in one batch. IDs unknown to Geoapteka are absent from the result, and so are all
+     * the fetched IDs when the call fails; only the former are remembered as unknown.</p>
+     *
+     * @param drugIds the IDs of the drugs to resolve
+     * @return the resolved drugs by their IDs
+     */
+    public Map<String, DrugCache> resolveAll(Collection<String> drugIds) {
+        Map<String, DrugCache> result = new HashMap<>();
+        Set<String> missingIds = new LinkedHashSet<>();
+        for (String drugId : drugIds) {
+            Optional<DrugCache> known = drugs.getIfPresent(drugId);
+            if (known == null) missingIds.add(drugId);
+            else known.ifPresent(drug -> result.put(drugId, drug));
+        }
+        if (missingIds.isEmpty()) return result;
 
-        List<String> missingIds = drugsId.stream()
-                .filter(id -> !baseSet.contains(id))
-                .toList();
+        for (List<String> chunk : ListUtils.partition(List.copyOf(missingIds), QUERY_CHUNK)) {
+            for (DrugCache drug : drugCacheRepository.findAllByDrugIdIn(chunk)) {
+                remember(drug);
+                result.put(drug.getDrugId(), drug);
+                missingIds.remove(drug.getDrugId());
+            }
+        }
         log.info("MissingList size: {}", missingIds.size());
+        if (missingIds.isEmpty()) return result;
 
-        if (!missingIds.isEmpty()) {
-            //perform API call
-            List<DrugInfo> drugInfoList = getDrugInfo(missingIds);
-            if (!drugInfoList.isEmpty()) {
-                for (DrugInfo info: drugInfoList) {
-                    result.add(getdrugCache(info));
-                }
-                //write missing ID's to base
-                log.info("Written in base: {}", result.size());
-                drugCacheRepository.saveAll(result);
+        DrugInfo[] fetched;
+        try {
+            fetched = fetchDrugInfo(List.copyOf(missingIds));
+        } catch (RestClientException e) {
+            log.error("Failed to get {} drugs from the API", missingIds.size(), e);
+            return result;
+        }
+
+        Map<String, DrugCache> newEntries = new LinkedHashMap<>();
+        if (fetched != null) {
+            for (DrugInfo info : fetched) {
+                if (info != null && info.getId() != null) newEntries.put(info.getId(), getdrugCache(info));
             }
         }
+        if (!newEntries.isEmpty()) {
+            //write missing ID's to base
+            log.info("Written in base: {}", newEntries.size());
+            try {
+                drugCacheRepository.saveAll(newEntries.values());
+            } catch (DataIntegrityViolationException e) {
+                // another thread stored some of them first, the names are still good to use
+                log.warn("Drugs were stored concurrently: {}", e.getMostSpecificCause().getMessage());
+            }
+        }
+        for (String drugId : missingIds) {
+            DrugCache drug = newEntries.get(drugId);
+            drugs.put(drugId, Optional.ofNullable(drug));
+            if (drug != null) result.put(drugId, drug);
+        }
+        return result;
     }
 
     private DrugCache getdrugCache(DrugInfo info) {
@@ -106,10 +245,7 @@ public class DrugNameService {
 
     public List<DrugInfo> getDrugInfo(List<String> drugIds) {
         try {
-            HttpEntity<List<String>> request = new HttpEntity<>(drugIds, createHeaders());
-
-            DrugInfo[] responseArray = restTemplate
-                    .postForObject(apiUrl + "/get_item_many", request, DrugInfo[].class);
+            DrugInfo[] responseArray = fetchDrugInfo(drugIds);
 
             if (responseArray != null) {
                 log.info("Drug Info response: {}", responseArray.length);
@@ -117,12 +253,18 @@ public class DrugNameService {
             }
             else
                 return new ArrayList<>();
-        } catch (ResourceAccessException e) {
-            log.error("Failed to connect to the API", e);
+        } catch (RestClientException e) {
+            log.error("Failed to get drug info from the API", e);
             return new ArrayList<>();
         }
     }
 
+    private DrugInfo[] fetchDrugInfo(List<String> drugIds) {
+        HttpEntity<List<String>> request = new HttpEntity<>(drugIds, createHeaders());
+        return outbound.call(OutboundExecutor.GEOAPTEKA, () -> restTemplate
+                .postForObject(apiUrl + "/get_item_many", request, DrugInfo[].class));
+    }
+
     private HttpHeaders createHeaders() {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
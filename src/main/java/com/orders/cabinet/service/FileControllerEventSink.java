@@ -0,0 +1,138 @@
+package com.orders.cabinet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orders.cabinet.configuration.AuditProperties;
+import com.orders.cabinet.event.ControllerEventSink;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+/**
+ * Sink appending controller audit events to segment files.
+ *
+ * <p>Used instead of {@link DbControllerEventSink} when the database is the bottleneck,
+ * {@code audit.controller.sink=file}. Events are collected by a {@link BatchWriter} with the {@code audit.*}
+ * batch settings and a buffer of {@code audit.controller.buffer-capacity} events, and appended as JSON lines to the current segment in {@code audit.controller.directory}. A new segment
+ * is started before a batch once the current one reaches {@code audit.controller.segment-size}, so a batch is
+ * always written to one segment. A batch that failed is cut off the segment again, so the retries of the writer
+ * don't duplicate its events; otherwise segments are never rewritten, so they can be shipped or loaded into the
+ * database later. Metrics are exported as
+ * {@code cabinet.audit.controller.*}.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "audit.controller.sink", havingValue = "file")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FileControllerEventSink implements ControllerEventSink {
+
+    private static final DateTimeFormatter SEGMENT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final byte[] NEW_LINE = {'\n'};
+
+    final ObjectMapper mapper;
+    final AuditProperties properties;
+    final MeterRegistry meterRegistry;
+
+    BatchWriter<Map<String, Object>> writer;
+    FileChannel segment;
+    long segmentBytes;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(properties.getController().getDirectory());
+        writer = new BatchWriter<>("cabinet.audit.controller",
+                properties.getController().getBufferCapacity(), properties, meterRegistry, this::write);
+    }
+
+    /**
+     * Stops the writer after it wrote the events left in the buffer, and closes the current segment.
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException, IOException {
+        writer.close();
+        if (segment != null) segment.close();
+    }
+
+    @Override
+    public void publish(Map<String, Object> event) {
+        writer.offer(event);
+    }
+
+    /**
+     * Appends a batch of events to the current segment, or nothing if it failed. Called only by the writer thread.
+     */
+    private void write(List<Map<String, Object>> batch) {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (Map<String, Object> event : batch) {
+            lines.writeBytes(ControllerEventSink.toJson(mapper, event).getBytes(StandardCharsets.UTF_8));
+            lines.writeBytes(NEW_LINE);
+        }
+        long start = segmentBytes;
+        try {
+            if (segment == null || segmentBytes >= properties.getController().getSegmentSize().toBytes())
+                startSegment();
+            start = segmentBytes;
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                segment.write(buffer, start + buffer.position());
+            }
+            segmentBytes = start + buffer.limit();
+        } catch (IOException e) {
+            cutOff(start);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Cuts the part of a failed batch off the current segment. If that fails too, the segment is
+     * left as it is and the next batch starts a new one.
+     */
+    private void cutOff(long size) {
+        if (segment == null) return;
+        try {
+            segment.truncate(size);
+        } catch (IOException e) {
+            log.error("Failed to cut a failed batch off the segment, it may hold a part of it", e);
+            try {
+                segment.close();
+            } catch (IOException ignored) {
+                // the segment is abandoned anyway
+            }
+            segment = null;
+        }
+    }
+
+    private void startSegment() throws IOException {
+        if (segment != null) segment.close();
+        segment = null;
+        Path path = properties.getController().getDirectory()
+                .resolve("controller-events-" + LocalDateTime.now().format(SEGMENT_NAME) + ".jsonl");
+        segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segmentBytes = segment.size();
+        log.info("Writing controller events to {}", path);
+    }
+}
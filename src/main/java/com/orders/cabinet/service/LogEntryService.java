@@ -1,38 +1,107 @@
 package com.orders.cabinet.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orders.cabinet.configuration.AuditProperties;
 import com.orders.cabinet.model.db.*;
-import com.orders.cabinet.repository.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
-import org.springframework.scheduling.annotation.Async;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 /**
  * Service for managing log entries.
  *
- * <p>This service provides methods for asynchronously saving log entries to the repository.</p>
+ * <p>This service buffers log entries in memory and writes them to the {@code log_entries} table in batches,
+ * so saving an entity doesn't cost an extra transaction per entry. Entries are collected by a {@link BatchWriter}
+ * with the {@code audit.*} settings and inserted with one batched statement per batch.</p>
+ *
+ * <p>Adding an entry never blocks: if the buffer is full, the entry is dropped and counted as
+ * {@code cabinet.audit.dropped}. Entries left in the buffer are written on shutdown. Changed fields of the entries
+ * are serialized to JSON by the writer thread too.</p>
  *
  * @author Vasylenko Oleksii
  * @company Proxima Research International
  * @version 1.0
  * @since 2024-07-19
  */
+@Slf4j
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class LogEntryService {
 
-    LogEntryRepository logEntryRepository;
+    private static final String INSERT = "INSERT INTO log_entries " +
+            "(timestamp, action, entity_type, entity_id, changes, message, exception) " +
+            "VALUES (?, ?, ?, ?, CAST(? AS JSONB), ?, ?)";
+    private static final int[] INSERT_TYPES = {Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
+
+    final JdbcTemplate jdbcTemplate;
+    final AuditProperties properties;
+    final MeterRegistry meterRegistry;
+    final ObjectMapper objectMapper;
+
+    BatchWriter<LogEntityEntry> writer;
+
+    @PostConstruct
+    public void init() {
+        writer = new BatchWriter<>("cabinet.audit", properties, meterRegistry, this::write);
+    }
+
+    /**
+     * Stops the writer after it wrote the entries left in the buffer.
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        writer.close();
+    }
 
     /**
-     * Asynchronously saves a log entry to the repository.
+     * Adds a log entry to the buffer to be written with the next batch.
      *
-     * <p>This method is executed asynchronously to improve performance and avoid blocking operations.</p>
+     * <p>This method never blocks the caller: if the buffer is full, the entry is dropped.</p>
      *
      * @param logEntry The {@link LogEntityEntry} instance to be saved.
      */
-    @Async
     public void saveLogEntryAsync(LogEntityEntry logEntry) {
-        logEntryRepository.saveLogEntry(logEntry);
+        writer.offer(logEntry);
+    }
+
+    /**
+     * Inserts a batch of entries with one batched statement.
+     */
+    private void write(List<LogEntityEntry> batch) {
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (LogEntityEntry entry : batch) {
+            args.add(new Object[]{
+                    Timestamp.valueOf(entry.getTimestamp()),
+                    entry.getAction(),
+                    entry.getEntityType(),
+                    entry.getEntityId(),
+                    toJson(entry),
+                    entry.getMessage(),
+                    entry.getException()});
+        }
+        jdbcTemplate.batchUpdate(INSERT, args, INSERT_TYPES);
+    }
+
+    private String toJson(LogEntityEntry entry) {
+        if (entry.getChanges() == null) return null;
+        try {
+            return objectMapper.writeValueAsString(entry.getChanges());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -26,7 +26,6 @@ import java.time.LocalTime;
 import java.time.format.TextStyle;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 /**
@@ -50,7 +49,8 @@ public class LoginService {
     UserService userService;
     ShopInfoCacheRepository shopInfoCacheRepository;
     ShopRepository shopRepository;
-    PriceListLoaderService loaderService;
+    PriceListRefreshScheduler refreshScheduler;
+    AuthCacheService authCache;
 
     /**
      * Authenticates a shop based on provided login details.
@@ -78,13 +78,10 @@ public class LoginService {
         if (byId.isEmpty())
             return CompletableFuture.failedFuture(new NoSuchShopException(new StringBuilder("No such shop ").append(loginDto.getShopId()).append(" in Geoapteka DB!")));
         else {
-            try {
-                loaderService.setCacheForPriceListByShop(loginDto.getShopId());
-            } catch (ExecutionException | InterruptedException e) {
-                log.error("Can't load prise list for '{}': {}", loginDto.getShopId(), e.getMessage());
-            }
+            refreshScheduler.requestNow(loginDto.getShopId());
             shopRepository.updateLoggedIn(loginDto.getShopId(), true);
             shopRepository.flush();
+            authCache.invalidateShop(loginDto.getShopId());
             return CompletableFuture.completedFuture(ShopInfoCachRepositoryMapper.INSTANCE.toDto(byId.get()));
         }
     }
@@ -122,7 +119,10 @@ public class LoginService {
         else {
             Shops shops = byId.get();
             if (!shops.isLogged()) throw new IllegalStateException(new StringBuilder().append("Shop ").append(shopId).append(" already logged out").toString());
-            else shopRepository.updateLoggedIn(shopId, false);
+            else {
+                shopRepository.updateLoggedIn(shopId, false);
+                authCache.invalidateUser(shopId);
+            }
         }
     }
 
@@ -171,7 +171,7 @@ public class LoginService {
      * @param schedule The schedule string to be parsed.
      * @return A map where keys are days of the week and values are maps with start and end times for each day.
      */
-    private Map<String, Map<String, String>> parseSingleSchedule(String schedule) {
+    Map<String, Map<String, String>> parseSingleSchedule(String schedule) {
         String patternString = "([A-Za-z, -]+) (\\d{2}:\\d{2})-(\\d{2}:\\d{2})";
         Pattern pattern = Pattern.compile(patternString);
 
@@ -1,5 +1,6 @@
 package com.orders.cabinet.service;
 
+import com.orders.cabinet.configuration.OutboundExecutor;
 import com.orders.cabinet.configuration.TelegramProperties;
 import com.orders.cabinet.event.OrderReceivedEvent;
 import com.orders.cabinet.model.api.Order;
@@ -12,7 +13,6 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -34,6 +34,7 @@ import java.util.concurrent.CompletableFuture;
 public class NotificationService {
     RestTemplate restTemplate;
     TelegramProperties properties;
+    OutboundExecutor outbound;
 
     /**
      * Handles the event when an order is received and triggers the notification process.
@@ -53,13 +54,18 @@ public class NotificationService {
     /**
      * Sends a notification containing the provided orders to the specified URL.
      *
-     * <p>This method is asynchronous and sends a POST request to the configured URL with the order details.
-     * It handles any exceptions that may occur during the process and logs the response.</p>
+     * <p>This method is asynchronous: it runs on the {@link OutboundExecutor} and sends a POST request to the
+     * configured URL with the order details. It handles any exceptions that may occur during the process
+     * and logs the response.</p>
      *
      * @param order An array of {@link Order} objects to be sent in the notification.
+     * @return a {@link CompletableFuture} completed when all notifications are sent.
      */
-    @Async
-    public void sendNotification(Order[] order) {
+    public CompletableFuture<Void> sendNotification(Order[] order) {
+        return outbound.runAsync(OutboundExecutor.TELEGRAM, () -> send(order));
+    }
+
+    private void send(Order[] order) {
         String url = properties.getUrl() + properties.getPath();
         for (int i = 0; i < order.length; i++) {
             HttpHeaders headers = new HttpHeaders();
@@ -67,7 +73,8 @@ public class NotificationService {
             HttpEntity<Order> requestEntity = new HttpEntity<>(order[i], headers);
 
             try {
-                ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, requestEntity, String.class);
+                ResponseEntity<String> response = outbound.call(OutboundExecutor.TELEGRAM,
+                        () -> restTemplate.exchange(url, HttpMethod.POST, requestEntity, String.class));
                 log.info("Response: {}", response);
             } catch (Exception e) {
                 log.error(e.getMessage());
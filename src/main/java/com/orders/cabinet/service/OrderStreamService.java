@@ -0,0 +1,156 @@
+package com.orders.cabinet.service;
+
+import com.orders.cabinet.configuration.OutboundExecutor;
+import com.orders.cabinet.event.OrderReceivedEvent;
+import com.orders.cabinet.model.api.Order;
+import com.orders.cabinet.model.api.dto.OrderDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+/**
+ * Service for pushing new orders to shops over server-sent events.
+ *
+ * <p>Instead of polling for new orders, a shop may keep a stream open. When orders are received for the shop,
+ * they are taken from its inbox in {@link UpdateOrderService} and sent to every open stream of the shop
+ * as an {@code orders} event. If none of the streams accepts them, the next fetch of the shop is answered
+ * from the database, so no order is lost.</p>
+ *
+ * <p>Streams are closed after {@code orders.stream.timeout} and receive a comment every
+ * {@code orders.stream.heartbeat}, so dead connections are detected. The amount of open streams is exposed as
+ * the {@code cabinet.orders.stream.connections} gauge.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderStreamService {
+
+    final UpdateOrderService updateOrderService;
+    final OutboundExecutor outbound;
+    final MeterRegistry meterRegistry;
+    final Map<String, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    @Value("${orders.stream.timeout}")
+    Duration timeout;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("cabinet.orders.stream.connections", emitters,
+                        map -> map.values().stream().mapToInt(Set::size).sum())
+                .description("Open streams of new orders")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of new orders for a shop.
+     *
+     * <p>Orders already waiting for the shop are sent right after the stream is opened.</p>
+     *
+     * @param shopId the ID of the shop
+     * @return the emitter of the stream
+     */
+    public SseEmitter subscribe(String shopId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        emitter.onCompletion(() -> remove(shopId, emitter));
+        emitter.onTimeout(() -> remove(shopId, emitter));
+        emitter.onError(ex -> remove(shopId, emitter));
+        emitters.computeIfAbsent(shopId, key -> new CopyOnWriteArraySet<>()).add(emitter);
+        log.info("Shop {} opened orders stream", shopId);
+
+        outbound.runAsync(OutboundExecutor.STREAM, () -> push(shopId));
+        return emitter;
+    }
+
+    /**
+     * Pushes received orders to the shops with open streams.
+     *
+     * <p>Runs after the orders were added to the inboxes of the shops.</p>
+     *
+     * @param event the {@link OrderReceivedEvent} containing the received orders.
+     */
+    @EventListener
+    @org.springframework.core.annotation.Order(Ordered.LOWEST_PRECEDENCE)
+    public void handleOrderReceivedEvent(OrderReceivedEvent event) {
+        Arrays.stream(event.getOrder())
+                .map(Order::getIdShop)
+                .distinct()
+                .filter(emitters::containsKey)
+                .forEach(shopId -> outbound.runAsync(OutboundExecutor.STREAM, () -> push(shopId)));
+    }
+
+    /**
+     * Sends a comment to every open stream, so closed connections are found and released.
+     *
+     * <p>Pings are sent on the {@link OutboundExecutor}, one task per stream, so a slow client can't hold up
+     * the scheduler thread or the pings of other streams.</p>
+     */
+    @Scheduled(fixedRateString = "${orders.stream.heartbeat}")
+    public void heartbeat() {
+        emitters.forEach((shopId, shopEmitters) -> shopEmitters.forEach(emitter ->
+                outbound.runAsync(OutboundExecutor.STREAM, () -> ping(shopId, emitter))));
+    }
+
+    private void ping(String shopId, SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().comment("ping"));
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            remove(shopId, emitter);
+        }
+    }
+
+    private void push(String shopId) {
+        Set<SseEmitter> shopEmitters = emitters.get(shopId);
+        if (shopEmitters == null || shopEmitters.isEmpty()) return;
+
+        List<OrderDTO> orders = updateOrderService.takeNewOrders(shopId);
+        if (orders.isEmpty()) return;
+
+        boolean delivered = false;
+        for (SseEmitter emitter : shopEmitters) {
+            try {
+                emitter.send(SseEmitter.event().name("orders").data(orders, MediaType.APPLICATION_JSON));
+                delivered = true;
+            } catch (IOException | IllegalStateException e) {
+                log.warn("Failed to push orders to shop {}: {}", shopId, e.getMessage());
+                emitter.completeWithError(e);
+                remove(shopId, emitter);
+            }
+        }
+
+        if (delivered) log.info("Pushed {} orders to shop {}", orders.size(), shopId);
+        else updateOrderService.requestResync(shopId, orders);
+    }
+
+    private void remove(String shopId, SseEmitter emitter) {
+        emitters.computeIfPresent(shopId, (key, shopEmitters) -> {
+            shopEmitters.remove(emitter);
+            return shopEmitters.isEmpty() ? null : shopEmitters;
+        });
+    }
+}
@@ -1,5 +1,7 @@
 package com.orders.cabinet.service;
 
+import com.orders.cabinet.configuration.CleanUpProperties;
+import com.orders.cabinet.configuration.StatesProperties;
 import com.orders.cabinet.event.OrderReceivedEvent;
 import com.orders.cabinet.model.api.Order;
 import com.orders.cabinet.model.api.OrderPreps;
@@ -12,18 +14,28 @@ import com.orders.cabinet.repository.OrderRepository;
 import com.orders.cabinet.repository.PrepsInOrderRepository;
 import com.orders.cabinet.repository.ShopRepository;
 import com.orders.cabinet.repository.StateRepository;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
-import org.hibernate.Hibernate;
+import org.apache.commons.collections4.ListUtils;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 /**
  * Service for handling and saving orders to the database.
  *
@@ -41,11 +53,18 @@ import java.util.concurrent.ExecutionException;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class OrderWriterService {
 
+    private static final int QUERY_CHUNK = 1000;
+
     OrderRepository orderRepository;
     StateRepository stateRepository;
     PrepsInOrderRepository prepsInOrderRepository;
     ShopRepository shopRepository;
     DrugNameService drugNameService;
+    TransactionTemplate transactionTemplate;
+    MeterRegistry meterRegistry;
+    StatesProperties statesProperties;
+    CleanUpProperties cleanUpProperties;
+    JdbcTemplate jdbcTemplate;
 
     /**
      * Handles the event when orders are received and initiates the process of saving them.
@@ -64,56 +83,183 @@ public class OrderWriterService {
     /**
      * Processes and saves the provided orders.
      *
-     * <p>This asynchronous method iterates over the provided orders, retrieves the corresponding shop,
-     * creates and saves the order, and updates the state of the order. It also saves the preparations
-     * associated with the order.</p>
+     * <p>This method saves the orders in one transaction with set-based reads and writes:
+     * shops and already stored orders are read with one query each, drugs of all the orders are resolved
+     * in one bulk call, and orders, states and preparations are saved with one {@code saveAll} per table.
+     * Orders of unknown shops are skipped.</p>
+     *
+     * <p>The expiry time of every order is set from its new state, see {@link #getExpiresAt(Order, Shops)}. Expiry
+     * times of already stored orders are updated with one batched statement, so the orders are not loaded.</p>
+     *
+     * <p>The method runs on the calling thread: the poller saves the received orders before the next batch, and
+     * state changes are saved before they are reported to the shop. Drugs are resolved before the transaction is
+     * opened, so no connection is held during the calls to Geoapteka. The time of every call, failed ones too,
+     * is recorded as {@code cabinet.orders.ingest} with its {@code outcome} and a percentile histogram.</p>
      *
      * @param orders An array of {@link Order} objects to be processed and saved.
      */
-    @Async
-    @Transactional
     public void saveOrders(Order[] orders) {
-        for (Order order : orders) {
-            Shops shop = getShops(order);
-            OrderDb orderDb = getOrderDb(order, shop);
-            State state = getState(order, orderDb, shop);
-            saveRpersInOrder(order, state);
+        long start = System.nanoTime();
+        String outcome = TimingAspect.ERROR;
+        try {
+            writeOrders(orders);
+            outcome = TimingAspect.SUCCESS;
+        } finally {
+            Timer.builder("cabinet.orders.ingest")
+                    .description("Time of saving received orders")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
+
+        long nanos = System.nanoTime() - start;
+        meterRegistry.counter("cabinet.orders.ingest.orders").increment(orders.length);
+        log.info("Saved {} orders in {} ms ({} orders/s)", orders.length, TimeUnit.NANOSECONDS.toMillis(nanos),
+                nanos == 0 ? 0 : orders.length * 1_000_000_000L / nanos);
+    }
+
+    private void writeOrders(Order[] orders) {
+        Map<String, DrugCache> drugs = drugNameService.resolveAll(Arrays.stream(orders)
+                .flatMap(order -> order.getData().stream())
+                .map(OrderPreps::getId)
+                .collect(Collectors.toSet()));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, Shops> shops = getShops(orders);
+            Map<String, OrderDb> orderDbs = getOrderDbs(orders, shops);
+
+            List<OrderDb> newOrders = new ArrayList<>();
+            List<State> states = new ArrayList<>();
+            List<PrepsInOrderDb> preps = new ArrayList<>();
+            Map<OrderDb, Date> expiries = new IdentityHashMap<>();
+            for (Order order : orders) {
+                Shops shop = shops.get(order.getIdShop());
+                if (shop == null) continue;
+                OrderDb orderDb = orderDbs.computeIfAbsent(key(order.getIdShop(), order.getIdOrder()), key -> {
+                    OrderDb created = getOrderDb(order, shop);
+                    newOrders.add(created);
+                    return created;
+                });
+                expiries.put(orderDb, getExpiresAt(order, shop));
+                State state = getState(order, orderDb, shop);
+                states.add(state);
+                preps.addAll(getPrepsInOrder(order, state, drugs));
+            }
+
+            newOrders.forEach(orderDb -> orderDb.setExpiresAt(expiries.remove(orderDb)));
+            orderRepository.saveAll(newOrders);
+            stateRepository.saveAll(states);
+            prepsInOrderRepository.saveAll(preps);
+            updateExpiresAt(expiries);
+        });
     }
 
     /**
-     * Retrieves the {@link Shops} entity for the given order.
+     * Retrieves the {@link Shops} entities of the given orders.
      *
-     * <p>Fetches the shop from the repository using the shop ID from the order. Throws an exception if
-     * the shop is not found.</p>
+     * <p>Fetches all the shops with one query. Orders of shops which are not found are logged and skipped.</p>
      *
-     * @param order The {@link Order} containing the shop ID.
-     * @return The {@link Shops} entity corresponding to the shop ID.
-     * @throws NoSuchElementException If no shop is found with the given ID.
+     * @param orders The {@link Order} objects containing the shop IDs.
+     * @return The {@link Shops} entities by their IDs.
      */
-    private Shops getShops(Order order) {
-        Shops shop = shopRepository.getShopByShopId(order.getIdShop())
-                .orElseThrow(() -> new NoSuchElementException("Shop not found: " + order.getIdShop()));
-        return shop;
+    private Map<String, Shops> getShops(Order[] orders) {
+        Set<String> shopIds = Arrays.stream(orders).map(Order::getIdShop).collect(Collectors.toSet());
+        Map<String, Shops> shops = shopRepository.findAllById(shopIds)
+                .stream()
+                .collect(Collectors.toMap(Shops::getShopId, Function.identity()));
+        shopIds.stream()
+                .filter(shopId -> !shops.containsKey(shopId))
+                .forEach(shopId -> log.error("Shop not found: {}", shopId));
+        return shops;
     }
 
     /**
-     * Saves the preparations associated with the order to the database.
+     * Retrieves already stored orders among the given ones.
      *
-     * <p>This method retrieves the drug name asynchronously and constructs {@link PrepsInOrderDb} objects
-     * for each preparation in the order. It then saves all the preparations to the repository.</p>
+     * <p>Only IDs of the stored orders are read, in chunks of {@value #QUERY_CHUNK} orders. The orders are
+     * referenced without loading them, as they are only needed as owners of the new states.</p>
+     *
+     * @param orders The {@link Order} objects to look for.
+     * @param shops The {@link Shops} entities of the orders.
+     * @return The stored {@link OrderDb} references by shop and order ID, see {@link #key(String, String)}.
+     */
+    private Map<String, OrderDb> getOrderDbs(Order[] orders, Map<String, Shops> shops) {
+        Map<String, OrderDb> result = new HashMap<>();
+        if (shops.isEmpty()) return result;
+        List<String> orderIds = Arrays.stream(orders).map(Order::getIdOrder).distinct().toList();
+        for (List<String> chunk : ListUtils.partition(orderIds, QUERY_CHUNK)) {
+            for (Object[] row : orderRepository.findIdsByShopIdsAndOrderIds(shops.keySet(), chunk)) {
+                result.put(key((String) row[1], (String) row[2]), orderRepository.getReferenceById((Long) row[0]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Updates expiry times of already stored orders with one batched statement.
+     *
+     * @param expiries The expiry times by the {@link OrderDb} references.
+     */
+    private void updateExpiresAt(Map<OrderDb, Date> expiries) {
+        if (expiries.isEmpty()) return;
+        List<Object[]> args = expiries.entrySet()
+                .stream()
+                .map(entry -> new Object[]{
+                        entry.getValue() == null ? null : new Timestamp(entry.getValue().getTime()),
+                        entry.getKey().getId()})
+                .toList();
+        jdbcTemplate.batchUpdate("UPDATE orders SET expires_at = ? WHERE id = ?", args,
+                new int[]{Types.TIMESTAMP, Types.BIGINT});
+    }
+
+    /**
+     * Calculates when the order expires in its new state.
+     *
+     * <p>New orders expire {@code cleanup.new-order-lifetime} after they were received, confirmed orders after the
+     * lifetime of the corporation in hours, and completed or canceled orders at the start of the next day, when
+     * they were deleted by the nightly cleanup before. Other states don't expire.</p>
+     *
+     * @param order The {@link Order} with the new state.
+     * @param shop The {@link Shops} entity associated with the order.
+     * @return The expiry time, or {@code null} if the order doesn't expire.
+     */
+    private Date getExpiresAt(Order order, Shops shop) {
+        Instant time = Instant.ofEpochSecond(order.getTimestamp());
+        String state = order.getState();
+        if (statesProperties.getNeww().equals(state))
+            return Date.from(time.plus(cleanUpProperties.getNewOrderLifetime()));
+        if (statesProperties.getConfirm().equals(state)) {
+            Integer lifetime = shop.getCorp() == null ? null : shop.getCorp().getLifeTime();
+            return lifetime == null ? null : Date.from(time.plus(Duration.ofHours(lifetime)));
+        }
+        if (statesProperties.getComlete().equals(state) || statesProperties.getCancel().equals(state))
+            return Date.from(LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        return null;
+    }
+
+    private static String key(String shopId, String orderId) {
+        return shopId + ':' + orderId;
+    }
+
+    /**
+     * Builds the preparations associated with the order.
+     *
+     * <p>This method takes the drug names from the resolved drugs and constructs {@link PrepsInOrderDb} objects
+     * for each preparation in the order.</p>
      *
      * @param order The {@link Order} containing the preparations.
      * @param state The {@link State} of the order.
+     * @param drugs The resolved drugs by their IDs.
+     * @return The preparations to save.
      */
-    private void saveRpersInOrder(Order order, State state) {
+    private List<PrepsInOrderDb> getPrepsInOrder(Order order, State state, Map<String, DrugCache> drugs) {
         List<PrepsInOrderDb> prepsInOrderDbList = new ArrayList<>();
         for (OrderPreps prep : order.getData()) {
-            DrugCache drugName = null;
-            try {
-                drugName = drugNameService.getDrugName(prep.getId()).get();
-            } catch (InterruptedException | ExecutionException e) {
-                log.error(e.getMessage());
+            DrugCache drugName = drugs.get(prep.getId());
+            if (drugName == null) {
+                log.error("Drug {} not resolved", prep.getId());
+                drugName = new DrugCache(prep.getId(), "Unknown Drug", "");
             }
             PrepsInOrderDb prepsInOrderDb = PrepsInOrderDb.builder()
                     .state(state)
@@ -126,13 +272,13 @@ public class OrderWriterService {
                     .build();
             prepsInOrderDbList.add(prepsInOrderDb);
         }
-        prepsInOrderRepository.saveAll(prepsInOrderDbList);
+        return prepsInOrderDbList;
     }
 
     /**
-     * Creates and saves the {@link State} for the given order.
+     * Creates the {@link State} for the given order.
      *
-     * <p>Constructs a {@link State} object for the order and saves it to the repository.</p>
+     * <p>Constructs a {@link State} object for the order.</p>
      *
      * @param order The {@link Order} for which the state is being created.
      * @param orderDb The {@link OrderDb} entity associated with the order.
@@ -140,29 +286,24 @@ public class OrderWriterService {
      * @return The created {@link State} object.
      */
     private State getState(Order order, OrderDb orderDb, Shops shop) {
-        State state = State.builder()
+        return State.builder()
                 .order(orderDb)
                 .shop(shop)
                 .time(new Date(order.getTimestamp() * 1000))
                 .state(order.getState())
                 .reason(order.getReason())
                 .build();
-        stateRepository.save(state);
-        return state;
     }
 
     /**
-     * Retrieves the {@link OrderDb} entity for the given order and shop.
-     *
-     * <p>Creates a new {@link OrderDb} object if it does not exist in the repository. Initializes
-     * the states collection if the order already exists.</p>
+     * Creates the {@link OrderDb} entity for the given order and shop.
      *
      * @param order The {@link Order} containing the order details.
      * @param shop The {@link Shops} entity associated with the order.
-     * @return The {@link OrderDb} entity corresponding to the order.
+     * @return The new {@link OrderDb} entity.
      */
     private OrderDb getOrderDb(Order order, Shops shop) {
-        OrderDb orderDb = OrderDb.builder()
+        return OrderDb.builder()
                 .orderId(order.getIdOrder())
                 .shop(shop)
                 .shopExtId(order.getExtidShop())
@@ -171,12 +312,5 @@ public class OrderWriterService {
                 .timestamp(order.getTimestamp())
                 .shipping(order.getShipping())
                 .build();
-        Optional<OrderDb> byShopIdAndOrderId = orderRepository.findByShopIdAndOrderId(shop.getShopId(), order.getIdOrder());
-        if (byShopIdAndOrderId.isEmpty()) orderRepository.save(orderDb);
-        else {
-            orderDb = byShopIdAndOrderId.get();
-            Hibernate.initialize(orderDb.getStates());  // Initialize the states collection
-        }
-        return orderDb;
     }
 }
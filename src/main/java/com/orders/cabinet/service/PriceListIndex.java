@@ -0,0 +1,275 @@
+package com.orders.cabinet.service;
+
+import com.orders.cabinet.model.api.PriceList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search index over the cached price list of one shop.
+ *
+ * <p>Items are kept sorted by their lower-cased drug name, so all names starting with a prefix form one
+ * contiguous range found by binary search. For the "contains" part of a query every whitespace-separated
+ * word of the names has a posting list of the positions it occurs at: a query word without whitespace is
+ * contained in a name only if it is contained in one of its words. The distinct words are in turn indexed
+ * by their trigrams, so only words sharing all trigrams with the query word are checked. Narrow prefix
+ * ranges, short query words and query words too common to benefit from the postings are verified against
+ * the names of the range directly.</p>
+ *
+ * <p>The index is immutable and built once when the price list is cached. Lower-cased names come from the
+ * shared {@link DrugDictionary}, and {@link PriceList} objects are materialized only for the returned rows.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+public final class PriceListIndex {
+
+    /**
+     * Prefix ranges up to this size are verified name by name instead of using the postings.
+     */
+    private static final int SCAN_LIMIT = 2048;
+
+    private final ColumnarPriceList priceList;
+    private final int[] rows;
+    private final String[] names;
+    private final String[] words;
+    private final int[][] postings;
+    private final Map<Long, int[]> trigrams;
+
+    private PriceListIndex(ColumnarPriceList priceList, int[] rows, String[] names, String[] words, int[][] postings,
+                           Map<Long, int[]> trigrams) {
+        this.priceList = priceList;
+        this.rows = rows;
+        this.names = names;
+        this.words = words;
+        this.postings = postings;
+        this.trigrams = trigrams;
+    }
+
+    /**
+     * Builds the index for the given price list.
+     *
+     * @param priceList the items of the shop
+     * @return the index
+     */
+    public static PriceListIndex build(ColumnarPriceList priceList) {
+        int size = priceList.size();
+        String[] lower = new String[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            lower[i] = priceList.getDrug(i).getLowerName();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> lower[i]));
+
+        int[] rows = new int[size];
+        String[] names = new String[size];
+        Map<String, IntList> wordPositions = new HashMap<>();
+        for (int position = 0; position < size; position++) {
+            int source = order[position];
+            rows[position] = source;
+            names[position] = lower[source];
+            for (String word : lower[source].split("\\s+")) {
+                if (word.isEmpty()) continue;
+                IntList list = wordPositions.computeIfAbsent(word, key -> new IntList());
+                if (list.last() != position) list.add(position);
+            }
+        }
+
+        String[] words = wordPositions.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        int[][] postings = new int[words.length][];
+        Map<Long, IntList> wordTrigrams = new HashMap<>();
+        for (int i = 0; i < words.length; i++) {
+            postings[i] = wordPositions.get(words[i]).toArray();
+            for (int j = 0; j + 3 <= words[i].length(); j++) {
+                IntList list = wordTrigrams.computeIfAbsent(trigram(words[i], j), key -> new IntList());
+                if (list.last() != i) list.add(i);
+            }
+        }
+        Map<Long, int[]> trigrams = new HashMap<>(wordTrigrams.size() * 4 / 3 + 1);
+        wordTrigrams.forEach((key, list) -> trigrams.put(key, list.toArray()));
+
+        return new PriceListIndex(priceList, rows, names, words, postings, trigrams);
+    }
+
+    /**
+     * Returns the indexed price list.
+     *
+     * @return the columnar price list of the shop
+     */
+    public ColumnarPriceList getPriceList() {
+        return priceList;
+    }
+
+    /**
+     * Returns an index over the given price list, which must stock the same drugs in the same rows,
+     * e.g. a list patched by {@link ColumnarPriceList#diff(List)}. All index structures are shared.
+     *
+     * @param patched the price list with updated values
+     * @return the index over the patched list
+     */
+    public PriceListIndex withPriceList(ColumnarPriceList patched) {
+        return new PriceListIndex(patched, rows, names, words, postings, trigrams);
+    }
+
+    /**
+     * Materializes all items sorted by drug name.
+     *
+     * @return the items of the shop
+     */
+    public List<PriceList> getItems() {
+        List<PriceList> items = new ArrayList<>(rows.length);
+        for (int row : rows) items.add(priceList.toPriceList(row));
+        return items;
+    }
+
+    /**
+     * Finds items whose name starts with the first word of the query and, for queries of two or three
+     * words, contains the other words too. Results are sorted by drug name.
+     *
+     * @param query the lower-cased query words
+     * @param limit the maximum amount of items to return
+     * @return the matching items
+     */
+    public List<PriceList> search(String[] query, int limit) {
+        int from = lowerBound(query[0]);
+        int to = upperBound(query[0], from);
+        List<PriceList> result = new ArrayList<>(Math.min(limit, to - from));
+
+        if (query.length != 2 && query.length != 3) {
+            for (int i = from; i < to && result.size() < limit; i++) result.add(priceList.toPriceList(rows[i]));
+            return result;
+        }
+
+        List<Integer> matchingWords = to - from <= SCAN_LIMIT || query[1].length() < 3 ? null : matchingWords(query[1], to - from);
+        if (matchingWords == null || matchingWords.stream().mapToLong(word -> postings[word].length).sum() >= to - from) {
+            // the prefix range is narrower than the postings: verify its names directly
+            for (int i = from; i < to && result.size() < limit; i++) {
+                if (names[i].contains(query[1]) && (query.length == 2 || names[i].contains(query[2]))) result.add(priceList.toPriceList(rows[i]));
+            }
+            return result;
+        }
+
+        BitSet candidates = positions(matchingWords, from, to);
+        for (int i = candidates.nextSetBit(from); i >= 0 && i < to && result.size() < limit; i = candidates.nextSetBit(i + 1)) {
+            if (query.length == 2 || names[i].contains(query[2])) result.add(priceList.toPriceList(rows[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Finds indexes of all distinct words containing the given part of at least three characters,
+     * checking only the words having all trigrams of the part.
+     *
+     * @return the word indexes, or {@code null} if there are at least {@code budget} candidate words
+     */
+    private List<Integer> matchingWords(String part, int budget) {
+        List<Integer> matching = new ArrayList<>();
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= part.length(); i++) {
+            int[] posting = trigrams.get(trigram(part, i));
+            if (posting == null) return matching;
+            candidates = candidates == null ? posting : intersect(candidates, posting);
+        }
+        if (candidates.length >= budget) return null;
+        for (int word : candidates) {
+            if (words[word].contains(part)) matching.add(word);
+        }
+        return matching;
+    }
+
+    /**
+     * Collects positions in range {@code [from, to)} of all names having one of the given words.
+     */
+    private BitSet positions(List<Integer> wordIndexes, int from, int to) {
+        BitSet positions = new BitSet(to);
+        for (int word : wordIndexes) {
+            int[] posting = postings[word];
+            int start = Arrays.binarySearch(posting, from);
+            for (int i = start < 0 ? -start - 1 : start; i < posting.length && posting[i] < to; i++) positions.set(posting[i]);
+        }
+        return positions;
+    }
+
+    /**
+     * First position with a name not less than the prefix.
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].compareTo(prefix) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * First position after {@code from} with a name not starting with the prefix.
+     */
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].startsWith(prefix)) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Packs three characters starting at {@code from} into one key.
+     */
+    private static long trigram(String value, int from) {
+        return ((long) value.charAt(from) << 32) | ((long) value.charAt(from + 1) << 16) | value.charAt(from + 2);
+    }
+
+    /**
+     * Intersects two sorted arrays.
+     */
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) i++;
+            else if (left[i] > right[j]) j++;
+            else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Minimal growable list of primitive ints.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int last() {
+            return size == 0 ? -1 : values[size - 1];
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.orders.cabinet.service;
 
+import com.orders.cabinet.configuration.OutboundExecutor;
+import com.orders.cabinet.configuration.PriceListRefreshProperties;
+import com.orders.cabinet.event.Timed;
 import com.orders.cabinet.mapper.ShopMapper;
 import com.orders.cabinet.model.api.PriceList;
+import com.orders.cabinet.model.db.DrugCache;
 import com.orders.cabinet.model.db.dto.ShopsDTO;
-import com.orders.cabinet.repository.DrugCacheRepository;
 import com.orders.cabinet.repository.ShopRepository;
-import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -16,89 +19,125 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
 @Slf4j
 @Service
-@EnableScheduling
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class PriceListLoaderService {
 
+    private static final String DELTA = "delta";
+
     final RestTemplate restTemplate;
-    final DrugCacheRepository drugCacheRepository;
     final DrugNameService drugNameService;
     final ShopRepository shopRepository;
     final ShopMapper shopMapper;
     final CacheService cacheService;
+    final OutboundExecutor outbound;
+    final MeterRegistry meterRegistry;
+    final PriceListRefreshProperties refreshProperties;
 
     @Value("${geoapteka.api.url}")
     String geoaptUrl;
 
-    @Scheduled(cron = "${scheduled.cron.pricelist.cache}")
-    public void mainMethod() {
-        CompletableFuture<Void> future = CompletableFuture.runAsync(this::startLoad);
-        future.exceptionally(ex -> {
-            log.error("Error during loading data", ex);
-            return null;
-        });
-    }
-
-    @PostConstruct
-    public void init() {
-        mainMethod();
-    }
-
-    private void startLoad() {
-        List<ShopsDTO> shops = loadLoggedShops();
-        List<CompletableFuture<Void>> futures = shops.stream()
-                .map(shop -> CompletableFuture.runAsync(() -> {
-                    try {
-                        setCacheForPriceListByShop(shop.getShopId());
-                    } catch (ExecutionException | InterruptedException e) {
-                        log.error("Error setting cache for shop {}", shop.getShopId(), e);
-                    }
-                }))
-                .toList();
-
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                .exceptionally(ex -> {
-                    log.error("Error during batch processing of shops", ex);
-                    return null;
-                });
+    @Timed
+    public CompletableFuture<Void> setCacheForPriceListByShop(String addressId) {
+        return outbound.runAsync(OutboundExecutor.GEOAPTEKA, () -> loadPriceList(addressId));
     }
 
-    @Async
-    public void setCacheForPriceListByShop(String addressId) throws ExecutionException, InterruptedException {
+    private void loadPriceList(String addressId) {
         List<PriceList> propsByShop = getPropsByShop(addressId);
-        List<String> drugIds = propsByShop.stream()
+        PriceListIndex cached = cacheService.getPriceListIndex(addressId);
+        List<PriceList> unresolved = propsByShop;
+        if (DELTA.equalsIgnoreCase(refreshProperties.getMode()) && cached != null) {
+            if (applyDelta(addressId, cached, propsByShop)) return;
+            unresolved = setKnownDrugNames(cached.getPriceList().getDictionary(), propsByShop);
+        }
+
+        List<String> drugIds = unresolved.stream()
                 .map(PriceList::getDrugId)
                 .toList();
 
-        drugNameService.setDrugNames(drugIds);
-
-        propsByShop.forEach(priceList -> {
-            drugCacheRepository.findById(priceList.getDrugId())
-                    .ifPresentOrElse(drugCache -> {
-                        priceList.setDrugName(drugCache.getDrugName());
-                        priceList.setDrugLink(drugCache.getDrugLink());
-                    }, () -> {
-                        priceList.setDrugName("Some drug");
-                        priceList.setDrugLink("Some link");
-                    });
+        Map<String, DrugCache> drugs = drugNameService.resolveAll(drugIds);
+
+        unresolved.forEach(priceList -> {
+            DrugCache drugCache = drugs.get(priceList.getDrugId());
+            if (drugCache != null) {
+                priceList.setDrugName(drugCache.getDrugName());
+                priceList.setDrugLink(drugCache.getDrugLink());
+            } else {
+                priceList.setDrugName("Some drug");
+                priceList.setDrugLink("Some link");
+            }
         });
 
         cacheService.cachePriceList(addressId, propsByShop);
     }
 
+    /**
+     * Compares the fetched price list with the cached one and records the change counts of the shop.
+     *
+     * <p>If the shop stocks the same drugs as before, only the changed values are applied to the cache
+     * and the search index is reused. Otherwise the whole price list and its index are rebuilt, as in the
+     * {@code full} mode. Refreshes are counted as {@code cabinet.pricelist.refresh.delta} tagged with the
+     * {@code result}, {@code patched} or {@code rebuilt}, and the {@code reason} of a rebuild, see
+     * {@link ColumnarPriceList.Delta#getRebuild()}, so the share of refreshes falling back to a rebuild is visible.</p>
+     *
+     * @param addressId the ID of the shop
+     * @param cached the cached price list of the shop
+     * @param propsByShop the fetched price list
+     * @return {@code true} if the cache was updated, {@code false} if the price list has to be rebuilt
+     */
+    private boolean applyDelta(String addressId, PriceListIndex cached, List<PriceList> propsByShop) {
+        ColumnarPriceList.Delta delta = cached.getPriceList().diff(propsByShop);
+        meterRegistry.counter("cabinet.pricelist.refresh.rows", "change", "changed").increment(delta.getChanged());
+        meterRegistry.counter("cabinet.pricelist.refresh.rows", "change", "added").increment(delta.getAdded());
+        meterRegistry.counter("cabinet.pricelist.refresh.rows", "change", "removed").increment(delta.getRemoved());
+        meterRegistry.summary("cabinet.pricelist.refresh.shop.changes")
+                .record(delta.getChanged() + delta.getAdded() + delta.getRemoved());
+        log.info("Price list of shop {}: {} changed, {} added, {} removed",
+                addressId, delta.getChanged(), delta.getAdded(), delta.getRemoved());
+
+        if (delta.getPatched() == null) {
+            meterRegistry.counter("cabinet.pricelist.refresh.delta", "result", "rebuilt", "reason", delta.getRebuild())
+                    .increment();
+            log.info("Price list of shop {} is rebuilt: {}", addressId, delta.getRebuild());
+            return false;
+        }
+        meterRegistry.counter("cabinet.pricelist.refresh.delta", "result", "patched", "reason", "none").increment();
+        cacheService.putPriceListIndex(addressId, cached.withPriceList(delta.getPatched()));
+        return true;
+    }
+
+    /**
+     * Takes names of the drugs which are already in the dictionary of the cached price list from it,
+     * so that only new drugs have to be resolved, also when the dictionary was retired.
+     *
+     * @param dictionary the dictionary of the cached price list of the shop
+     * @param propsByShop the fetched price list
+     * @return the items of drugs missing in the dictionary
+     */
+    private List<PriceList> setKnownDrugNames(DrugDictionary dictionary, List<PriceList> propsByShop) {
+        List<PriceList> unresolved = new ArrayList<>();
+        for (PriceList priceList : propsByShop) {
+            DrugDictionary.Drug drug = dictionary.find(priceList.getDrugId());
+            if (drug != null) {
+                priceList.setDrugName(drug.getDrugName());
+                priceList.setDrugLink(drug.getDrugLink());
+            } else {
+                unresolved.add(priceList);
+            }
+        }
+        return unresolved;
+    }
+
     public List<ShopsDTO> loadLoggedShops() {
         return shopRepository.findAllByLoggedTrue()
                 .stream()
@@ -115,12 +154,12 @@ public class PriceListLoaderService {
         HttpEntity<String> entity = new HttpEntity<>(headers);
         log.info("Fetching props for shop: {}", shopId);
 
-        ResponseEntity<List<PriceList>> response = restTemplate.exchange(
+        ResponseEntity<List<PriceList>> response = outbound.call(OutboundExecutor.GEOAPTEKA, () -> restTemplate.exchange(
                 apiUrl,
                 HttpMethod.GET,
                 entity,
-                new ParameterizedTypeReference<>() {}
-        );
+                new ParameterizedTypeReference<List<PriceList>>() {}
+        ));
 
         List<PriceList> responseBody = response.getBody();
         if (responseBody != null) {
@@ -0,0 +1,210 @@
+package com.orders.cabinet.service;
+
+import com.orders.cabinet.configuration.PriceListRefreshProperties;
+import com.orders.cabinet.model.db.dto.ShopsDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler spreading price list refreshes of all logged in shops across the refresh window.
+ *
+ * <p>On every {@code scheduled.cron.pricelist.cache} tick each logged in shop gets a due time inside
+ * {@code pricelist.refresh.window}: a slot derived from the shop ID only, so that shops are spread uniformly
+ * and every shop keeps its own slot from one window to the next. Cached price lists outlive the window by
+ * twice {@code pricelist.refresh.expiry-margin}, so a shop refreshed in its slot never expires before its
+ * next one. A single dispatcher thread starts the refreshes in due time order, at most
+ * {@code pricelist.refresh.concurrency} at once; the request rate to Geoapteka is limited by its
+ * {@link com.orders.cabinet.configuration.OutboundExecutor} lane for all callers.</p>
+ *
+ * <p>Shops that just logged in are urgent: they are due at the time of the login and go before all others,
+ * so the lag of their refresh is measured from the login too. Shops without a cached price list are due now.</p>
+ *
+ * <p>Queue depth and the lag between due time and actual start are exported as
+ * {@code cabinet.pricelist.refresh.queue} and {@code cabinet.pricelist.refresh.lag}.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+@Slf4j
+@Service
+@EnableScheduling
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PriceListRefreshScheduler {
+
+    /**
+     * Longest time the dispatcher sleeps before checking the head of the queue again.
+     */
+    private static final long MAX_IDLE_MILLIS = 1000;
+
+    final PriceListLoaderService loaderService;
+    final CacheService cacheService;
+    final PriceListRefreshProperties properties;
+    final MeterRegistry meterRegistry;
+
+    /**
+     * Urgent refreshes go first, the others in due time order.
+     */
+    private static final Comparator<RefreshTask> ORDER = Comparator.comparing((RefreshTask task) -> !task.isUrgent())
+            .thenComparingLong(RefreshTask::getDueAt);
+
+    final PriorityBlockingQueue<RefreshTask> queue = new PriorityBlockingQueue<>(64, ORDER);
+    final Map<String, RefreshTask> queued = new ConcurrentHashMap<>();
+    final Object signal = new Object();
+
+    Timer lag;
+    Thread dispatcher;
+    Semaphore running;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("cabinet.pricelist.refresh.queue", queue, PriorityBlockingQueue::size).register(meterRegistry);
+        lag = Timer.builder("cabinet.pricelist.refresh.lag").register(meterRegistry);
+        running = new Semaphore(Math.max(1, properties.getConcurrency()));
+
+        dispatcher = new Thread(this::dispatch, "PriceListRefresh");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+
+        scheduleLoggedShops();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        dispatcher.interrupt();
+    }
+
+    /**
+     * Schedules refreshes of all logged in shops across the next refresh window.
+     */
+    @Scheduled(cron = "${scheduled.cron.pricelist.cache}")
+    public void scheduleLoggedShops() {
+        List<ShopsDTO> shops = loaderService.loadLoggedShops();
+        long now = System.currentTimeMillis();
+        long window = properties.getWindow().toMillis();
+
+        for (ShopsDTO shop : shops) {
+            String shopId = shop.getShopId();
+            long dueAt = cacheService.getPriceListIndex(shopId) == null ? now
+                    : now + Math.floorMod(mix(shopId.hashCode()), Math.max(window, 1));
+            schedule(new RefreshTask(shopId, dueAt, false));
+        }
+        log.info("Scheduled price list refresh for {} shops, {} in queue", shops.size(), queue.size());
+    }
+
+    /**
+     * Schedules the refresh of the shop ahead of all others, e.g. right after its login.
+     *
+     * @param shopId the ID of the shop
+     */
+    public void requestNow(String shopId) {
+        schedule(new RefreshTask(shopId, System.currentTimeMillis(), true));
+    }
+
+    /**
+     * Queues the refresh of the shop, or moves an already queued one forward.
+     */
+    private void schedule(RefreshTask task) {
+        String shopId = task.getShopId();
+        RefreshTask previous = queued.putIfAbsent(shopId, task);
+        if (previous != null) {
+            if (ORDER.compare(previous, task) <= 0 || !queued.replace(shopId, previous, task)) return;
+            queue.remove(previous);
+        }
+        queue.put(task);
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Starts due refreshes one by one, at most {@code pricelist.refresh.concurrency} at once.
+     */
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                RefreshTask task = queue.take();
+                long delay = task.getDueAt() - System.currentTimeMillis();
+                if (delay > 0) {
+                    queue.put(task);
+                    synchronized (signal) {
+                        signal.wait(Math.min(delay, MAX_IDLE_MILLIS));
+                    }
+                    continue;
+                }
+                if (!queued.remove(task.getShopId(), task)) continue;
+
+                running.acquire();
+                lag.record(Math.max(0, System.currentTimeMillis() - task.getDueAt()), TimeUnit.MILLISECONDS);
+                start(task.getShopId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Price list refresh dispatcher error", e);
+            }
+        }
+    }
+
+    /**
+     * Starts the refresh of the shop, releasing its slot of {@code pricelist.refresh.concurrency} once it is done.
+     */
+    private void start(String shopId) {
+        CompletableFuture<Void> refresh;
+        try {
+            refresh = loaderService.setCacheForPriceListByShop(shopId);
+        } catch (RuntimeException e) {
+            running.release();
+            throw e;
+        }
+        refresh.whenComplete((v, ex) -> {
+            running.release();
+            if (ex != null) log.error("Error setting cache for shop {}", shopId, ex);
+        });
+    }
+
+    /**
+     * Spreads close hash codes of similar shop IDs across the window.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    /**
+     * Refresh of one shop due at the given time; an urgent refresh was requested for that time
+     * and goes ahead of all others.
+     */
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static final class RefreshTask {
+        String shopId;
+        long dueAt;
+        boolean urgent;
+    }
+}
@@ -1,5 +1,6 @@
 package com.orders.cabinet.service;
 
+import com.orders.cabinet.configuration.OutboundExecutor;
 import com.orders.cabinet.configuration.TelegramProperties;
 import com.orders.cabinet.model.api.dto.NotificationDTO;
 import com.orders.cabinet.model.db.order.OrderDb;
@@ -12,7 +13,6 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -41,6 +41,7 @@ public class RememberAllService {
     OrderRepository repository;
     TelegramProperties properties;
     RestTemplate restTemplate;
+    OutboundExecutor outbound;
 
     /**
      * Periodically checks for orders with only one state and sends notifications
@@ -48,14 +49,18 @@ public class RememberAllService {
      *
      * <p>This asynchronous and scheduled method retrieves orders that have only
      * one state and checks if the last state timestamp plus 40 minutes is after
-     * the current time. If so, it sends a notification for each eligible order.</p>
+     * the current time. If so, it sends a notification for each eligible order.
+     * The work runs on the {@link OutboundExecutor}.</p>
      *
      * @see OrderDb
      * @see NotificationDTO
      */
-    @Async
     @Scheduled(cron = "${scheduled.cron}")
     public void rememberOrder() {
+        outbound.runAsync(OutboundExecutor.TELEGRAM, this::notifyAboutWaitingOrders);
+    }
+
+    private void notifyAboutWaitingOrders() {
         List<OrderDb> newOrders = repository.findOrdersWithOnlyOneState()
                 .stream()
                 .filter(order -> order.getStates()
@@ -83,7 +88,8 @@ public class RememberAllService {
                 HttpEntity<NotificationDTO> requestEntity = new HttpEntity<>(notific, headers);
 
                 try {
-                    ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, requestEntity, String.class);
+                    ResponseEntity<String> response = outbound.call(OutboundExecutor.TELEGRAM,
+                            () -> restTemplate.exchange(url, HttpMethod.POST, requestEntity, String.class));
                     log.info("Response: {}", response);
                 } catch (Exception e) {
                     log.error(e.getMessage());
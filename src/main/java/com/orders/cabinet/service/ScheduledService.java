@@ -2,6 +2,7 @@ package com.orders.cabinet.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orders.cabinet.configuration.OutboundExecutor;
 import com.orders.cabinet.configuration.PopOrderProperties;
 import com.orders.cabinet.event.OrderReceivedEvent;
 import com.orders.cabinet.mapper.ShopMapper;
@@ -9,16 +10,17 @@ import com.orders.cabinet.model.api.Order;
 import com.orders.cabinet.model.db.dto.CorpDTO;
 import com.orders.cabinet.model.db.dto.ShopsDTO;
 import com.orders.cabinet.repository.ShopRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.ListUtils;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -28,19 +30,26 @@ import org.springframework.web.client.RestTemplate;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
  * Service for periodically retrieving orders from available shops and processing them.
  *
  * <p>This service is scheduled to periodically make requests to retrieve orders from shops
- * that are currently logged in. It processes these orders and publishes events for them.</p>
+ * that are currently logged in. Shops are polled in batches per corporation, and the received
+ * orders are published as events per shop.</p>
  *
  * @author Vasylenko Oleksii
  * @company Proxima Research International
@@ -62,7 +71,11 @@ public class ScheduledService {
     final ShopRepository repo;
     final ShopMapper mapper;
 
-    Map<String, CorpDTO> corps = new HashMap<>();
+    final MeterRegistry meterRegistry;
+    final OutboundExecutor outbound;
+
+    Map<String, CorpDTO> corps = new ConcurrentHashMap<>();
+    final AtomicBoolean polling = new AtomicBoolean();
 
     /**
      * Retrieves a list of available shops that are currently logged in.
@@ -71,83 +84,128 @@ public class ScheduledService {
      */
     private List<ShopsDTO> getAvailableShops() {
         List<ShopsDTO> result = repo.findAllByLoggedTrue().stream().map(mapper::toDto).collect(Collectors.toList());
-        log.info(result.toString());
+        log.info("Shops to poll: {}", result.size());
         return result;
     }
 
     /**
      * Periodically retrieves orders from available shops and processes them.
      *
-     * <p>This method is scheduled to run at a fixed rate (every 10 seconds) and
-     * processes orders for each available shop asynchronously.</p>
+     * <p>Logged in shops are grouped by corporation (one set of Basic credentials per corporation)
+     * and their IDs are sent to /pop-order in chunks of {@code pop-order.batch-size}. Batches are
+     * processed in parallel on the {@link OutboundExecutor}. The scheduler thread doesn't wait for them:
+     * the metrics of the tick (shops polled, batches sent, orders received and the wall time of the tick)
+     * are reported once all batches complete, and a tick is skipped while the previous one is still running.</p>
+     *
+     * @return a {@link CompletableFuture} completed with the amount of orders received by the tick.
      */
     @Scheduled(cron = "${pop-order.rate}")
     //@Scheduled(fixedRate = 10000)
-    public void makeRequest() {
+    public CompletableFuture<Integer> makeRequest() {
+        if (!polling.compareAndSet(false, true)) {
+            log.warn("Previous poll tick is still running, skipping");
+            return CompletableFuture.completedFuture(0);
+        }
+        long start = System.nanoTime();
+
+        List<ShopsDTO> result;
+        try {
+            result = getAvailableShops();
+        } catch (RuntimeException e) {
+            polling.set(false);
+            throw e;
+        }
+        if (result.isEmpty()) {
+            polling.set(false);
+            return CompletableFuture.completedFuture(0);
+        }
 
-        List<ShopsDTO> result = getAvailableShops();
-        if (!result.isEmpty()) {
-            for (ShopsDTO shop : result) {
-                doFuckingMagicAsync(shop);
+        Map<String, List<String>> shopsByCorp = result.stream()
+                .collect(Collectors.groupingBy(ShopsDTO::getCorpId, LinkedHashMap::new,
+                        Collectors.mapping(ShopsDTO::getShopId, Collectors.toList())));
+
+        List<CompletableFuture<Integer>> batches = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : shopsByCorp.entrySet()) {
+            for (List<String> chunk : ListUtils.partition(entry.getValue(), Math.max(1, properties.getBatchSize()))) {
+                batches.add(outbound.supplyAsync(OutboundExecutor.POP_ORDER, () -> doFuckingMagicBatch(entry.getKey(), chunk)));
             }
         }
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+                .thenApply(v -> batches.stream().mapToInt(CompletableFuture::join).sum())
+                .whenComplete((orders, ex) -> {
+                    polling.set(false);
+                    if (ex != null) {
+                        log.error("Poll tick failed: {}", ex.getMessage());
+                        return;
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    meterRegistry.summary("cabinet.poll.tick.shops").record(result.size());
+                    meterRegistry.summary("cabinet.poll.tick.batches").record(batches.size());
+                    meterRegistry.summary("cabinet.poll.tick.orders").record(orders);
+                    meterRegistry.timer("cabinet.poll.tick.duration").record(elapsed, TimeUnit.NANOSECONDS);
+                    log.info("Poll tick: {} shops in {} batches, {} orders received, {} ms",
+                            result.size(), batches.size(), orders, TimeUnit.NANOSECONDS.toMillis(elapsed));
+                });
     }
 
     /**
-     * Asynchronously processes orders for a specific shop.
+     * Processes one batch of shops, logging errors instead of propagating them
+     * so that one failed batch does not break the whole tick.
      *
-     * @param shop the {@link ShopsDTO} representing the shop to process.
-     * @return a {@link CompletableFuture} indicating the completion of the task.
+     * @param corpId the corporation all shops of the batch belong to.
+     * @param shopIds the IDs of the shops to poll.
+     * @return the amount of orders received.
      */
-    @Async
-    public CompletableFuture<Void> doFuckingMagicAsync(ShopsDTO shop) {
+    private int doFuckingMagicBatch(String corpId, List<String> shopIds) {
         try {
-            doFuckingMagic(shop);
-        } catch (InterruptedException | ExecutionException | IOException e) {
-            log.error("Error processing shop {}: {}", shop.getShopId(), e.getMessage());
+            return doFuckingMagic(corpId, shopIds);
+        } catch (InterruptedException | ExecutionException | IOException | RuntimeException e) {
+            log.error("Error processing shops {} of corp {}: {}", shopIds, corpId, e.getMessage());
+            return 0;
         }
-        return CompletableFuture.completedFuture(null);
     }
 
     /**
-     * Processes orders for a specific shop by making an HTTP request to retrieve them.
+     * Processes orders for a batch of shops by making one HTTP request to retrieve them.
      *
-     * @param shop the {@link ShopsDTO} representing the shop to process.
+     * <p>Received orders are split back by shop, and one {@link OrderReceivedEvent} is published per shop.</p>
+     *
+     * @param corpId the corporation all shops of the batch belong to.
+     * @param shopIds the IDs of the shops to poll.
+     * @return the amount of orders received.
      * @throws InterruptedException if the thread is interrupted while waiting.
      * @throws ExecutionException if an exception occurs during asynchronous processing.
      * @throws JsonProcessingException if there is an error processing JSON.
      */
-    private void doFuckingMagic(ShopsDTO shop) throws InterruptedException, ExecutionException, JsonProcessingException {
+    private int doFuckingMagic(String corpId, List<String> shopIds) throws InterruptedException, ExecutionException, JsonProcessingException {
         String url = properties.getUrl() + properties.getPop();
-        CorpDTO temp = null;
-        if (corps.containsKey(shop.getCorpId())) {
-            temp = corps.get(shop.getCorpId());
-        } else {
-            temp = service.getCorpInfoById(shop.getCorpId()).get();
-            corps.put(shop.getCorpId(), temp);
+        CorpDTO temp = corps.get(corpId);
+        if (temp == null) {
+            temp = service.getCorpInfoById(corpId).get();
+            corps.put(corpId, temp);
         }
 
-        List<String> requestBody = List.of(shop.getShopId());
-
         try {
-            String requestBodyJson = objectMapper.writeValueAsString(requestBody);
+            String requestBodyJson = objectMapper.writeValueAsString(shopIds);
             HttpEntity<String> entity = new HttpEntity<>(requestBodyJson, getHttpHeaders(temp.getLogin(), temp.getPassword()));
 
             log.info(entity.toString());
-            ResponseEntity<Order[]> exchange = restTemplate.exchange(url, HttpMethod.POST, entity, Order[].class);
+            ResponseEntity<Order[]> exchange = outbound.call(OutboundExecutor.POP_ORDER,
+                    () -> restTemplate.exchange(url, HttpMethod.POST, entity, Order[].class));
             log.info(exchange.toString());
-            if (exchange.getBody() != null) {
-                for (Order order : exchange.getBody()) {
-                    log.info(order.toString());
-                }
-            }
 
             Order[] response = exchange.getBody();
-            if (response != null) {
-                eventPublisher.publishEvent(new OrderReceivedEvent(this, response));
-            }
+            if (response == null || response.length == 0) return 0;
+
+            Map<String, List<Order>> byShop = Arrays.stream(response)
+                    .peek(order -> log.info(order.toString()))
+                    .collect(Collectors.groupingBy(order -> Objects.toString(order.getIdShop(), "")));
+            byShop.values().forEach(orders -> eventPublisher.publishEvent(new OrderReceivedEvent(this, orders.toArray(new Order[0]))));
+            return response.length;
         } catch (HttpClientErrorException ex) {
             log.error(LocalDateTime.now() + ": " + ex.getStatusCode() + ": " + ex.getMessage());
+            return 0;
         }
     }
 
@@ -1,28 +1,75 @@
 package com.orders.cabinet.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aspect timing methods annotated with {@link com.orders.cabinet.event.Timed}.
+ *
+ * <p>Every call is recorded into the {@code cabinet.timed} timer tagged with the class and the method, and with
+ * the {@code outcome} of the call, {@code success} or {@code error}. The timer publishes a percentile histogram,
+ * so latency distributions are available at {@code /actuator/prometheus}. Methods returning a
+ * {@link CompletableFuture} are timed until the future completes.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
 @Slf4j
 @Aspect
 @Component
-@FieldDefaults(level = AccessLevel.PRIVATE)
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class TimingAspect {
 
+    static final String SUCCESS = "success";
+    static final String ERROR = "error";
+
+    MeterRegistry meterRegistry;
+
     @Around("@annotation(com.orders.cabinet.event.Timed)")
     public Object timeMethodExecution(ProceedingJoinPoint joinPoint) throws Throwable {
-        long start = System.currentTimeMillis();
-        Object proceed = joinPoint.proceed();
-
-        long time = System.currentTimeMillis() - start;
-        log.info("TIMED: Method {} finished in {}ms", joinPoint.getSignature().toShortString(), time);
+        long start = System.nanoTime();
+        Object proceed;
+        try {
+            proceed = joinPoint.proceed();
+        } catch (Throwable ex) {
+            record(joinPoint, start, ERROR);
+            throw ex;
+        }
 
+        if (proceed instanceof CompletableFuture<?> future) {
+            future.whenComplete((result, ex) -> record(joinPoint, start, ex == null ? SUCCESS : ERROR));
+        } else {
+            record(joinPoint, start, SUCCESS);
+        }
         return proceed;
     }
-}
 
+    private void record(ProceedingJoinPoint joinPoint, long start, String outcome) {
+        long nanos = System.nanoTime() - start;
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        Timer.builder("cabinet.timed")
+                .description("Time of methods annotated with @Timed")
+                .tag("class", signature.getDeclaringType().getSimpleName())
+                .tag("method", signature.getName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        log.trace("TIMED: Method {} finished in {}ms", signature.toShortString(), TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+}
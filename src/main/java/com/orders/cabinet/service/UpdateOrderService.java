@@ -2,9 +2,12 @@ package com.orders.cabinet.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orders.cabinet.configuration.CleanUpProperties;
+import com.orders.cabinet.configuration.OutboundExecutor;
 import com.orders.cabinet.configuration.PopOrderProperties;
 import com.orders.cabinet.configuration.StatesProperties;
 import com.orders.cabinet.event.OrderReceivedEvent;
+import com.orders.cabinet.event.Timed;
 import com.orders.cabinet.exception.ImpossibleException;
 import com.orders.cabinet.exception.NoSuchShopException;
 import com.orders.cabinet.exception.OrderOutOfDateException;
@@ -21,6 +24,8 @@ import com.orders.cabinet.repository.OrderRepository;
 import com.orders.cabinet.repository.PrepsInOrderRepository;
 import com.orders.cabinet.repository.ShopRepository;
 import com.orders.cabinet.repository.StateRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -28,6 +33,7 @@ import lombok.Setter;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
 import org.springframework.http.*;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -38,7 +44,11 @@ import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 /**
  * Service for handling and updating orders based on received events and requests.
  *
@@ -68,43 +78,186 @@ public class UpdateOrderService {
     ShopRepository shopRepository;
 
     StatesProperties states;
-    Map<String, List<Order>> orderMap = new HashMap<>();
+    OutboundExecutor outbound;
+    Map<String, Inbox> inboxes = new ConcurrentHashMap<>();
     OrderWriterService orderWriterService;
+    MeterRegistry meterRegistry;
+    CleanUpProperties cleanUpProperties;
 
     /**
-     * Handles the {@link OrderReceivedEvent} by adding received orders to the internal map.
+     * Handles the {@link OrderReceivedEvent} by adding received orders to the inbox of their shop.
+     *
+     * <p>An inbox keeps at most {@code pop-order.inbox-capacity} orders. Orders above it are dropped from memory
+     * and only their IDs are remembered as pending, so fetches of the shop are answered from the database
+     * until all of them were read from it.</p>
      *
      * @param event the {@link OrderReceivedEvent} containing the received orders.
      */
     @EventListener
+    @org.springframework.core.annotation.Order(Ordered.HIGHEST_PRECEDENCE)
     public void handleOrderReceivedEvent(OrderReceivedEvent event) {
         Order[] newOrders = event.getOrder();
         Arrays.stream(newOrders)
                 .forEach(order -> {
-                    orderMap
-                            .computeIfAbsent(order.getIdShop(), key -> new ArrayList<>())
-                            .add(order);
+                    Inbox inbox = inboxes.computeIfAbsent(order.getIdShop(), this::createInbox);
+                    if (!inbox.offer(order, properties.getInboxCapacity())) {
+                        meterRegistry.counter("cabinet.inbox.overflow").increment();
+                        log.warn("Inbox of shop {} is full, order {} will be read from DB", order.getIdShop(), order.getIdOrder());
+                    }
                 });
     }
 
     /**
      * Retrieves and removes new orders for a specific shop.
      *
+     * <p>If the inbox of the shop has pending orders, orders of the shop which are still in 'New' state are read
+     * from the database too, see {@link #takeNewOrders(String)}.</p>
+     *
      * @param shopId the ID of the shop for which to retrieve orders.
      * @return a {@link CompletableFuture} containing a list of {@link OrderDTO} representing the orders.
      * @throws NoSuchShopException if no orders are available for the specified shop ID.
      */
     @Async
     public CompletableFuture<List<OrderDTO>> getOrdersWithOnlyNewStateByShopId(String shopId) {
-        if (orderMap.get(shopId) != null) {
-            List<Order> orders = new ArrayList<>(orderMap.get(shopId));
-            orderMap.remove(shopId);
+        List<OrderDTO> orders = takeNewOrders(shopId);
+        if (orders.isEmpty()) return CompletableFuture.failedFuture(new NoSuchShopException(""));
 
-            return CompletableFuture.supplyAsync(() ->
-                    orders.stream().map(mapper::OrderToDto).collect(Collectors.toList())
-            );
-        } else {
-            return CompletableFuture.failedFuture(new NoSuchShopException(""));
+        return CompletableFuture.completedFuture(orders);
+    }
+
+    /**
+     * Removes new orders from the inbox of a shop.
+     *
+     * <p>While the inbox has pending orders, which were dropped from memory on overflow, orders of the shop which
+     * are still in 'New' state are read from the database as well. The orders are saved asynchronously, so an order
+     * stays pending until a read finds it, and the database is read on every fetch until then. Orders already taken
+     * by the shop are not returned from the database again.</p>
+     *
+     * <p>Pending and taken orders are remembered for {@code cleanup.new-order-lifetime}, after which orders still
+     * in 'New' state are deleted anyway.</p>
+     *
+     * <p>The lock of the inbox is held only to drain it and to update the pending and taken IDs. The database is
+     * read and the orders are mapped without it, so a slow read or drug lookup doesn't block the poller or other
+     * fetches of the shop. If mapping fails, the orders are handed back as pending, see {@link #requestResync}.</p>
+     *
+     * @param shopId the ID of the shop for which to retrieve orders.
+     * @return the orders, empty if there are none.
+     */
+    public List<OrderDTO> takeNewOrders(String shopId) {
+        Inbox inbox = inboxes.get(shopId);
+        if (inbox == null) return List.of();
+
+        long now = System.currentTimeMillis();
+        List<Order> orders;
+        boolean readPending;
+        synchronized (inbox) {
+            long oldest = now - cleanUpProperties.getNewOrderLifetime().toMillis();
+            inbox.pending.values().removeIf(time -> time < oldest);
+            inbox.taken.values().removeIf(time -> time < oldest);
+            orders = inbox.drain();
+            readPending = !inbox.pending.isEmpty();
+        }
+
+        Map<String, OrderDb> stored = new LinkedHashMap<>();
+        if (readPending) {
+            stateRepository.findStatesWithOnlyNewStateForShop(shopId)
+                    .orElse(List.of())
+                    .forEach(state -> stored.putIfAbsent(state.getOrder().getOrderId(), state.getOrder()));
+        }
+
+        List<OrderDb> fromDb = new ArrayList<>();
+        List<Order> fromInbox = new ArrayList<>();
+        synchronized (inbox) {
+            stored.forEach((orderId, orderDb) -> {
+                inbox.pending.remove(orderId);
+                if (inbox.taken.putIfAbsent(orderId, now) == null) fromDb.add(orderDb);
+            });
+            for (Order order : orders) {
+                if (stored.containsKey(order.getIdOrder())) continue;
+                inbox.taken.put(order.getIdOrder(), now);
+                fromInbox.add(order);
+            }
+        }
+
+        try {
+            List<OrderDTO> result = new ArrayList<>(fromDb.size() + fromInbox.size());
+            fromDb.forEach(orderDb -> result.add(mapper.DBToDTO(orderDb)));
+            fromInbox.forEach(order -> result.add(mapper.OrderToDto(order)));
+            return result;
+        } catch (RuntimeException e) {
+            resync(inbox, Stream.concat(fromDb.stream().map(OrderDb::getOrderId), fromInbox.stream().map(Order::getIdOrder)));
+            throw e;
+        }
+    }
+
+    /**
+     * Returns taken orders which could not be delivered to the shop, so its next fetch reads them from the database.
+     *
+     * @param shopId the ID of the shop.
+     * @param orders the orders which were not delivered.
+     */
+    public void requestResync(String shopId, List<OrderDTO> orders) {
+        resync(inboxes.computeIfAbsent(shopId, this::createInbox), orders.stream().map(OrderDTO::getIdOrder));
+    }
+
+    private void resync(Inbox inbox, Stream<String> orderIds) {
+        synchronized (inbox) {
+            long now = System.currentTimeMillis();
+            orderIds.forEach(orderId -> {
+                inbox.taken.remove(orderId);
+                inbox.pending.put(orderId, now);
+            });
+        }
+    }
+
+    /**
+     * Creates the inbox of a shop and registers its depth gauge.
+     *
+     * @param shopId the ID of the shop
+     * @return the new inbox
+     */
+    private Inbox createInbox(String shopId) {
+        Inbox inbox = new Inbox();
+        Gauge.builder("cabinet.inbox.depth", inbox.size, AtomicInteger::get)
+                .description("New orders waiting in memory to be fetched by the shop")
+                .tag("shop", shopId)
+                .register(meterRegistry);
+        return inbox;
+    }
+
+    /**
+     * New orders of a shop waiting to be fetched.
+     *
+     * <p>Received orders are added by the poller threads without locking, and drained by the request threads
+     * holding the lock of the inbox. The size is reserved before an order is added, so the capacity is never
+     * exceeded. IDs of orders dropped on overflow are kept as pending until they are read from the database, and
+     * IDs of orders taken by the shop are kept so they are not returned from the database again, each with the
+     * time they were added. The taken IDs are read and changed only under the lock of the inbox.</p>
+     */
+    private static class Inbox {
+        final Queue<Order> orders = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final Map<String, Long> pending = new ConcurrentHashMap<>();
+        final Map<String, Long> taken = new HashMap<>();
+
+        boolean offer(Order order, int capacity) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                pending.put(order.getIdOrder(), System.currentTimeMillis());
+                return false;
+            }
+            orders.add(order);
+            return true;
+        }
+
+        List<Order> drain() {
+            List<Order> drained = new ArrayList<>();
+            Order order;
+            while ((order = orders.poll()) != null) {
+                size.decrementAndGet();
+                drained.add(order);
+            }
+            return drained;
         }
     }
 
@@ -115,17 +268,15 @@ public class UpdateOrderService {
      * @param controllerDto the {@link ControllerDTO} containing order details.
      * @return a {@link CompletableFuture} containing the updated state.
      */
-    @Async
+    @Timed
     public CompletableFuture<?> confirmOrder(String shopId, ControllerDTO controllerDto) {
-        try {
+        return outbound.supplyAsync(OutboundExecutor.POP_ORDER, () -> {
             Order newOrder = getNewState(shopId, controllerDto, states.getConfirm());
 
             doPartyHard(newOrder);
             saveIt(newOrder);
-            return CompletableFuture.completedFuture(states.getConfirm());
-        } catch (Exception e) {
-            return CompletableFuture.failedFuture(e);
-        }
+            return states.getConfirm();
+        });
     }
 
     /**
@@ -135,18 +286,14 @@ public class UpdateOrderService {
      * @param controllerDto the {@link ControllerDTO} containing order details.
      * @return a {@link CompletableFuture} containing the updated state.
      */
-    @Async
     public CompletableFuture<?> completeOrder(String shopId, ControllerDTO controllerDto) {
-        try {
+        return outbound.supplyAsync(OutboundExecutor.POP_ORDER, () -> {
             Order newOrder = getNewState(shopId, controllerDto, states.getComlete());
 
             doPartyHard(newOrder);
             saveIt(newOrder);
-
-            return CompletableFuture.completedFuture(states.getComlete());
-        } catch (Exception e) {
-            return CompletableFuture.failedFuture(e);
-        }
+            return states.getComlete();
+        });
     }
 
     /**
@@ -156,19 +303,15 @@ public class UpdateOrderService {
      * @param controllerDto the {@link ControllerDTO} containing order details.
      * @return a {@link CompletableFuture} containing the updated state.
      */
-    @Async
     public CompletableFuture<?> cancelOrder(String shopId, ControllerDTO controllerDto) {
-        try {
+        return outbound.supplyAsync(OutboundExecutor.POP_ORDER, () -> {
             Order newOrder = getNewState(shopId, controllerDto, states.getCancel());
             newOrder.setReason(controllerDto.getReason());
 
             doPartyHard(newOrder);
             saveIt(newOrder);
-
-            return CompletableFuture.completedFuture(states.getCancel());
-        } catch (Exception e) {
-            return CompletableFuture.failedFuture(e);
-        }
+            return states.getCancel();
+        });
     }
 
     /**
@@ -229,7 +372,8 @@ public class UpdateOrderService {
                     String requestBodyJson = objectMapper.writeValueAsString(newOrder);
                     HttpEntity<String> entity = new HttpEntity<>(requestBodyJson,
                             getHttpHeaders(corp.get().getLogin(), corp.get().getPassword()));
-                    response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+                    response = outbound.call(OutboundExecutor.POP_ORDER,
+                            () -> restTemplate.exchange(url, HttpMethod.POST, entity, String.class));
                     log.info(response + ":\n" + requestBodyJson);
                     if (response.getStatusCode() == HttpStatus.NO_CONTENT) {
                         noContent = true;
@@ -2,6 +2,8 @@ package com.orders.cabinet.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orders.cabinet.configuration.AuditProperties;
+import com.orders.cabinet.event.ControllerEventSink;
 import com.orders.cabinet.model.db.ControllerEntityEntry;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.AccessLevel;
@@ -12,6 +14,7 @@ import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.*;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -21,6 +24,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 @Aspect
@@ -32,9 +36,13 @@ public class WatchAllService {
 //    @Autowired
 //    private KafkaTemplate<String, Map<String, Object>> kafkaTemplate;
     final ObjectMapper mapper;
+    final ControllerEventSink sink;
+    final AuditProperties properties;
+    final AntPathMatcher pathMatcher = new AntPathMatcher();
 
     String TOPIC = "controller-events";
     String RB = "response_body";
+    String CAPTURE = "requestCapture";
 
     DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss dd.MM.yyyy");
 
@@ -46,6 +54,9 @@ public class WatchAllService {
         ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
         HttpServletRequest request = attributes.getRequest();
 
+        AuditProperties.Capture capture = getCapture(request.getRequestURI());
+        if (ThreadLocalRandom.current().nextDouble() >= capture.getSampleRate()) return;
+
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         Map<String, Object> data = new HashMap<>();
         data.put("user", request.getRemoteUser());
@@ -60,6 +71,7 @@ public class WatchAllService {
             }
         }
         request.setAttribute("requestData", data);
+        request.setAttribute(CAPTURE, capture);
     }
 
     @AfterReturning(pointcut = "controllerMethods()", returning = "result")
@@ -69,6 +81,7 @@ public class WatchAllService {
 
         @SuppressWarnings("unchecked")
         Map<String, Object> data = (Map<String, Object>) request.getAttribute("requestData");
+        AuditProperties.Capture capture = (AuditProperties.Capture) request.getAttribute(CAPTURE);
         if (data != null) {
             if (result instanceof CompletableFuture<?>) {
                 CompletableFuture<?> future = (CompletableFuture<?>) result;
@@ -76,14 +89,14 @@ public class WatchAllService {
                     if (throwable != null) {
                         data.put(RB, throwable.getMessage());
                     } else {
-                        data.put(RB, resolvedResult);
+                        data.put(RB, captureBody(resolvedResult, capture));
                     }
-                    log.warn(data.toString());
+                    sink.publish(data);
                 });
             } else {
-                data.put(RB, result);
+                data.put(RB, captureBody(result, capture));
+                sink.publish(data);
             }
-            log.warn(data.toString());
         }
 
     }
@@ -98,10 +111,40 @@ public class WatchAllService {
         if (data != null) {
             data.put(RB, ex.getMessage());
 //            kafkaTemplate.send(TOPIC, data);
-            log.warn(data.toString());
+            sink.publish(data);
         }
     }
 
+    /**
+     * Resolves the capture settings of the endpoint: the first matching {@code audit.controller.endpoints}
+     * entry, with settings it doesn't set taken from {@code audit.controller}.
+     */
+    private AuditProperties.Capture getCapture(String path) {
+        AuditProperties.Controller defaults = properties.getController();
+        AuditProperties.Capture endpoint = defaults.getEndpoints().entrySet()
+                .stream()
+                .filter(entry -> pathMatcher.match(entry.getKey(), path))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+
+        AuditProperties.Capture capture = new AuditProperties.Capture();
+        capture.setSampleRate(endpoint != null && endpoint.getSampleRate() != null ? endpoint.getSampleRate() : defaults.getSampleRate());
+        capture.setBody(endpoint != null && endpoint.getBody() != null ? endpoint.getBody() : defaults.getBody());
+        capture.setMaxElements(endpoint != null && endpoint.getMaxElements() != null ? endpoint.getMaxElements() : defaults.getMaxElements());
+        capture.setMaxBodyChars(endpoint != null && endpoint.getMaxBodyChars() != null ? endpoint.getMaxBodyChars() : defaults.getMaxBodyChars());
+        return capture;
+    }
+
+    /**
+     * Captures the response body without rendering it; it is rendered, cut to the configured size,
+     * only when the sink writes the event.
+     */
+    private Object captureBody(Object body, AuditProperties.Capture capture) {
+        if (!capture.getBody()) return null;
+        return BodyCapture.of(mapper, body, capture.getMaxElements(), capture.getMaxBodyChars());
+    }
+
 
 }
 
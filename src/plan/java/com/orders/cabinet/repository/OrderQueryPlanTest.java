@@ -0,0 +1,128 @@
+package com.orders.cabinet.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+/**
+ * EXPLAIN checks of the order lookup queries.
+ *
+ * <p>The schema is created with the Liquibase changelog of the application, on an embedded PostgreSQL or on the
+ * database given with {@code plan.jdbc-url}. Every query is explained in a transaction which is rolled back after
+ * it, with {@value #SHOPS} shops and {@value #ORDERS} orders seeded and analyzed, so the planner tells the indexes
+ * of orders apart, and with sequential scans disabled, so a plan shows whether an index can serve the query at all.</p>
+ *
+ * @author Vasylenko Oleksii
+ * @company Proxima Research International
+ * @version 1.0
+ * @since 2024-07-19
+ */
+class OrderQueryPlanTest {
+
+    private static final int SHOPS = 100;
+    private static final int ORDERS = 20_000;
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    @BeforeAll
+    static void createSchema() throws Exception {
+        String url = System.getProperty("plan.jdbc-url");
+        if (url == null) {
+            postgres = EmbeddedPostgres.start();
+            dataSource = postgres.getPostgresDatabase();
+        } else {
+            dataSource = new DriverManagerDataSource(url,
+                    System.getProperty("plan.username"), System.getProperty("plan.password"));
+        }
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        if (postgres != null) postgres.close();
+    }
+
+    @Test
+    void orderIsFoundByShopAndOrderId() throws SQLException {
+        assertThat(explain("SELECT * FROM orders WHERE shop_id = 'plan-shop-34' AND order_id = '1234'"))
+                .contains("idx_orders_shop_id_order_id ")
+                .doesNotContain("Filter");
+    }
+
+    @Test
+    void ordersAreFoundByLastSymbols() throws SQLException {
+        assertThat(explain("SELECT * FROM orders WHERE shop_id = 'plan-shop-34' AND order_id_reversed LIKE '4321%'"))
+                .contains("idx_orders_shop_id_order_id_reversed")
+                .contains("order_id_reversed)::text ~>=~ '4321'");
+    }
+
+    @Test
+    void latestStateIsReadFromIndexWithoutSorting() throws SQLException {
+        assertThat(explain("SELECT s.state, s.time FROM states s WHERE s.order_id = 1 ORDER BY s.id DESC LIMIT 1"))
+                .contains("idx_states_order_id_id")
+                .doesNotContain("Sort");
+    }
+
+    @Test
+    void laterStatesAreFoundByOrderAndId() throws SQLException {
+        assertThat(explain("SELECT 1 FROM states l WHERE l.order_id = 1 AND l.id > 10"))
+                .contains("idx_states_order_id_id");
+    }
+
+    @Test
+    void newStatesAreFoundByShop() throws SQLException {
+        assertThat(explain("SELECT * FROM states WHERE state = 'New' AND shop_id = 'shop'"))
+                .contains("idx_states_new_shop_id");
+    }
+
+    @Test
+    void preparationsAreFoundByState() throws SQLException {
+        assertThat(explain("SELECT * FROM preps_in_order WHERE state_id = 1"))
+                .contains("idx_preps_in_order_state_id");
+    }
+
+    private static String explain(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            try {
+                seed(statement);
+                statement.execute("SET LOCAL enable_seqscan = off");
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = statement.executeQuery("EXPLAIN " + sql)) {
+                    while (rows.next()) plan.append(rows.getString(1)).append('\n');
+                }
+                return plan.toString();
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    private static void seed(Statement statement) throws SQLException {
+        statement.execute("INSERT INTO corp (corp_id, login, password, corp_name) " +
+                "VALUES ('plan-corp', 'plan', 'plan', 'Plan')");
+        statement.execute("INSERT INTO shops (shop_id, role, corp_id) " +
+                "SELECT 'plan-shop-' || i, 'USER', 'plan-corp' FROM generate_series(0, " + (SHOPS - 1) + ") i");
+        statement.execute("INSERT INTO orders (order_id, shop_id) " +
+                "SELECT i::text, 'plan-shop-' || (i % " + SHOPS + ") FROM generate_series(1, " + ORDERS + ") i");
+        statement.execute("ANALYZE corp, shops, orders");
+    }
+}